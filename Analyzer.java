@@ -0,0 +1,37 @@
+/**
+ * Steps E and F for one token: drops stop words and stems the rest
+ * through the StemCache, so that the corpus, online paragraphs and
+ * queries become terms the same way.
+ *
+ * The stem is left in a buffer of the analyzer's own, reused for the next
+ * token. The stop word filter and the cache can be shared between
+ * threads, an Analyzer cannot.
+ */
+class Analyzer
+{
+    private final StopWordFilter stopWords;
+    private final StemCache cache;
+    private char[] stem = new char[64];
+
+    /**
+     * @param stopWords
+     * @param cache
+     */
+    public Analyzer(StopWordFilter stopWords, StemCache cache) {
+        this.stopWords = stopWords;
+        this.cache = cache;
+    }
+
+    /**
+     * Stems the len characters of buf starting at off into stem().
+     * @return the length of the stem, or -1 if the token is a stop word
+     */
+    public int stem(char[] buf, int off, int len) {
+        if (stopWords.contains(buf, off, len)) return -1;
+        if (len > stem.length) stem = new char[len * 2];
+        return cache.stem(buf, off, len, stem, 0);
+    }
+
+    /** Returns the buffer holding the last stem, valid until the next call to stem. */
+    public char[] stem() { return stem; }
+}
@@ -0,0 +1,73 @@
+/**
+ * The result of clustering the paragraphs: the cluster each row of the
+ * term document matrix was assigned to, how similar it is to that
+ * cluster, and the unit length centroid (or neuron weight vector) of
+ * every cluster.
+ */
+class Clusters
+{
+    /** most clusters chosen when none are asked for */
+    static final int MAX_DEFAULT_K = 256;
+    /* longest array the JVM will allocate */
+    private static final int MAX_ARRAY = Integer.MAX_VALUE - 8;
+
+    /** cluster of each row, 0 based */
+    final int[] assignment;
+    /** cosine of each row with its cluster's centroid */
+    final double[] similarity;
+    /** k centroids of length dimensions, one after the other */
+    final double[] centroids;
+    final int k;
+    final int dimensions;
+    /** training passes actually made */
+    final int epochs;
+
+    Clusters(int[] assignment, double[] similarity, double[] centroids, int k, int dimensions, int epochs) {
+        this.assignment = assignment;
+        this.similarity = similarity;
+        this.centroids = centroids;
+        this.k = k;
+        this.dimensions = dimensions;
+        this.epochs = epochs;
+    }
+
+    /**
+     * Returns the number of clusters to use when none are asked for: one
+     * per paragraph as in p4.m, but at most MAX_DEFAULT_K, since every
+     * cluster is a dense vector over the whole vocabulary.
+     * @param rows paragraphs to cluster
+     */
+    static int defaultK(int rows) {
+        return Math.max(1, Math.min(rows, MAX_DEFAULT_K));
+    }
+
+    /**
+     * Returns the length of k dense vectors over d dimensions, e.g. the
+     * centroids.
+     * @param k
+     * @param d
+     * @throws IllegalArgumentException if they do not fit in one array
+     */
+    static int cells(int k, int d) {
+        long cells = (long) k * d;
+        if (cells > MAX_ARRAY) {
+            throw new IllegalArgumentException(k + " clusters over " + d + " terms need " + cells
+                    + " weights, more than fit in one array; ask for fewer clusters (-k) or terms (-top)");
+        }
+        return (int) cells;
+    }
+
+    /** Returns the number of rows in each cluster. */
+    public int[] sizes() {
+        int[] sizes = new int[k];
+        for (int c : assignment) sizes[c]++;
+        return sizes;
+    }
+
+    /** Returns the number of clusters that have at least one row. */
+    public int used() {
+        int used = 0;
+        for (int size : sizes()) if (size > 0) used++;
+        return used;
+    }
+}
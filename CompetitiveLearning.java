@@ -0,0 +1,145 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Winner-take-all competitive learning over the term document matrix,
+ * the clustering that p4.m does in MATLAB.
+ *
+ * Every paragraph row is scaled to unit length. Each neuron is a unit
+ * length weight vector over the keywords, starting at random. In every
+ * epoch each paragraph finds its winner, the neuron with the largest dot
+ * product (NET = Z*V), using the weights as they were at the start of the
+ * epoch. Then, paragraph by paragraph, the winner is moved towards it,
+ * w = v + alpha * z, and renormalised. After the last epoch each paragraph
+ * is assigned to its winner.
+ *
+ * Paragraph rows stay sparse and the similarities come from a
+ * CosineKernel, so finding a winner costs the row's cells times the
+ * neurons rather than the vocabulary size. The neuron weights are one
+ * neuron-major double[], so renormalising a neuron is a plain loop over
+ * a contiguous range that the JIT can vectorize.
+ *
+ * Beyond p4.m, training can run in mini-batches: the winners of a batch
+ * are found together, then every winning neuron is moved by the sum of
+ * its paragraphs, w = v + alpha * (z1 + z2 + ...), and renormalised once.
+ * Winners are found in RowBlocks on a ForkJoinPool, since each row only
+ * reads the weights. Training can also stop early, once the assignments
+ * have not changed for a number of epochs.
+ */
+class CompetitiveLearning
+{
+    static final double DEFAULT_ALPHA = 0.1;
+    static final int DEFAULT_EPOCHS = 1000;
+
+    private final int neurons;
+    private final double alpha;
+    private final int epochs;
+    private final long seed;
+    private final int batch;
+    private final int patience;
+    private final int threads;
+
+    /**
+     * @param neurons number of clusters, 16 in p4.m (one per paragraph)
+     * @param alpha learning rate
+     * @param epochs passes over the paragraphs
+     * @param seed for the initial weights
+     */
+    public CompetitiveLearning(int neurons, double alpha, int epochs, long seed) {
+        this(neurons, alpha, epochs, seed, 0, 0, 1);
+    }
+
+    /**
+     * @param neurons number of clusters
+     * @param alpha learning rate
+     * @param epochs most passes over the paragraphs
+     * @param seed for the initial weights
+     * @param batch paragraphs per aggregated update, 0 to move the winner
+     *              after every paragraph as p4.m does
+     * @param patience stop after this many epochs without a change of
+     *                 assignment, 0 to always run every epoch
+     * @param threads for finding winners, 1 runs on the calling thread
+     */
+    public CompetitiveLearning(int neurons, double alpha, int epochs, long seed, int batch, int patience,
+                               int threads) {
+        if (neurons < 1) throw new IllegalArgumentException("neuron count must be positive: " + neurons);
+        if (!(alpha > 0)) throw new IllegalArgumentException("learning rate must be positive: " + alpha);
+        if (epochs < 0) throw new IllegalArgumentException("epoch count must not be negative: " + epochs);
+        if (batch < 0) throw new IllegalArgumentException("batch size must not be negative: " + batch);
+        if (patience < 0) throw new IllegalArgumentException("patience must not be negative: " + patience);
+        if (threads < 1) throw new IllegalArgumentException("thread count must be positive: " + threads);
+        this.neurons = neurons;
+        this.alpha = alpha;
+        this.epochs = epochs;
+        this.seed = seed;
+        this.batch = batch;
+        this.patience = patience;
+        this.threads = threads;
+    }
+
+    /**
+     * Clusters the rows of the matrix. Rows without any cells go to the
+     * first neuron with similarity 0.
+     * @param tdm
+     * @return the neuron of each row and the final neuron weights
+     */
+    public Clusters cluster(SparseMatrix tdm) {
+        return cluster(new CosineKernel(tdm));
+    }
+
+    /**
+     * Clusters the rows of the kernel's matrix.
+     * @param kernel
+     * @return the neuron of each row and the final neuron weights
+     */
+    public Clusters cluster(CosineKernel kernel) {
+        int p = kernel.rows(), d = kernel.matrix().columns();
+        double[] w = new double[Clusters.cells(neurons, d)];
+        Random random = new Random(seed);
+        for (int i = 0; i < w.length; i++) w[i] = random.nextDouble();
+        for (int j = 0; j < neurons; j++) CosineKernel.normalize(w, j * d, d);
+
+        int[] winner = new int[p];
+        int[] previous = new int[p];
+        double[] net = new double[p];
+        boolean[] moved = new boolean[neurons];
+        try (RowBlocks blocks = new RowBlocks(threads)) {
+            int e = 0, stable = 0;
+            while (e < epochs && (patience == 0 || stable < patience)) {
+                if (batch == 0) {
+                    winners(blocks, kernel, w, 0, p, winner, net);
+                    for (int r = 0; r < p; r++) {
+                        kernel.addTo(r, alpha, w, winner[r] * d);
+                        CosineKernel.normalize(w, winner[r] * d, d);
+                    }
+                } else {
+                    for (int from = 0; from < p; from += batch) {
+                        int to = Math.min(from + batch, p);
+                        winners(blocks, kernel, w, from, to, winner, net);
+                        for (int r = from; r < to; r++) {
+                            kernel.addTo(r, alpha, w, winner[r] * d);
+                            moved[winner[r]] = true;
+                        }
+                        for (int j = 0; j < neurons; j++) {
+                            if (moved[j]) CosineKernel.normalize(w, j * d, d);
+                            moved[j] = false;
+                        }
+                    }
+                }
+                e++;
+                stable = e > 1 && Arrays.equals(winner, previous) ? stable + 1 : 0;
+                System.arraycopy(winner, 0, previous, 0, p);
+            }
+            winners(blocks, kernel, w, 0, p, winner, net);
+            return new Clusters(winner, net, w, neurons, d, e);
+        }
+    }
+
+    /* winners of rows from..to */
+    private void winners(RowBlocks blocks, CosineKernel kernel, double[] w, int from, int to, int[] winner,
+                         double[] net) {
+        blocks.run(from, to, (start, end) -> {
+            for (int r = start; r < end; r++) winner[r] = kernel.nearest(r, w, neurons, net);
+        });
+    }
+}
@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streams a corpus file through a memory-mapped window, decoding UTF-8 a
+ * chunk at a time and running each chunk through a Tokenizer.
+ *
+ * Only one mapped window and one decoded chunk are live at any moment, so
+ * memory use does not grow with the size of the file.
+ */
+class CorpusReader
+{
+    /* bytes of the file mapped at a time */
+    private static final long WINDOW = 64L << 20;
+    /* chars decoded at a time */
+    private static final int CHUNK = 1 << 16;
+
+    private final Path path;
+
+    public CorpusReader(String pathName) {
+        this.path = Paths.get(pathName);
+    }
+
+    /**
+     * Reads the whole file, calling sink.token() once for every token and
+     * sink.endParagraph() at the end of every paragraph.
+     * @param sink
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public void read(TokenSink sink) throws IOException {
+        read(sink, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads the bytes from offset from up to offset to, which should both
+     * be boundaries returned by split().
+     * @param sink
+     * @param from
+     * @param to
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public void read(TokenSink sink, long from, long to) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer out = CharBuffer.allocate(CHUNK);
+        Tokenizer tokenizer = new Tokenizer(sink);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long end = Math.min(to, channel.size());
+            long pos = from;
+            do {
+                long len = Math.min(WINDOW, end - pos);
+                boolean last = pos + len == end;
+                MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                while (true) {
+                    CoderResult result = decoder.decode(in, out, last);
+                    if (result.isOverflow()) {
+                        drain(out, tokenizer);
+                        continue;
+                    }
+                    if (result.isError()) result.throwException();
+                    break;
+                }
+                // a multi-byte sequence cut by the end of the window is left
+                // unconsumed and mapped again at the start of the next one
+                pos += in.position();
+            } while (pos < end);
+            while (decoder.flush(out).isOverflow()) drain(out, tokenizer);
+        }
+        drain(out, tokenizer);
+        tokenizer.finish();
+    }
+
+    /** Returns the size of the file in bytes. */
+    public long size() throws IOException {
+        return Files.size(path);
+    }
+
+    /**
+     * Cuts the file into about parts ranges of similar size, each ending
+     * just after a ";" so that no paragraph is split. The ";" byte never
+     * occurs inside a multi-byte UTF-8 sequence, so the raw bytes can be
+     * searched without decoding.
+     * @param parts
+     * @return the ascending range boundaries, starting at 0 and ending at the file size
+     * @throws IOException if the file cannot be read
+     */
+    public long[] split(int parts) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = new long[parts + 1];
+            int n = 0;
+            bounds[n++] = 0;
+            ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+            for (int p = 1; p < parts; p++) {
+                long pos = Math.max(size / parts * p, bounds[n - 1]);
+                long cut = size;
+                // scan forward from the even split point to the next ";"
+                scan:
+                while (pos < size) {
+                    buf.clear();
+                    int read = channel.read(buf, pos);
+                    if (read <= 0) break;
+                    for (int c = 0; c < read; c++) {
+                        if (buf.get(c) == ';') {
+                            cut = pos + c + 1;
+                            break scan;
+                        }
+                    }
+                    pos += read;
+                }
+                if (cut >= size) break;
+                if (cut > bounds[n - 1]) bounds[n++] = cut;
+            }
+            bounds[n++] = size;
+            return Arrays.copyOf(bounds, n);
+        }
+    }
+
+    private static void drain(CharBuffer out, Tokenizer tokenizer) {
+        out.flip();
+        tokenizer.feed(out.array(), 0, out.limit());
+        out.clear();
+    }
+}
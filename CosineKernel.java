@@ -0,0 +1,128 @@
+/**
+ * Cosine similarity between the rows of a term document matrix and dense
+ * vectors over the same columns, such as cluster centroids or a query.
+ *
+ * The norm of every row is computed once and the cells are kept scaled
+ * to unit length, so a cosine with a unit length vector is a plain dot
+ * product. Dot products walk only the row's stored cells: a row of m
+ * cells costs m multiply-adds whatever the vocabulary size.
+ *
+ * The kernel is a snapshot: rows appended to the matrix afterwards are
+ * not seen. It is read only and may be shared between threads.
+ */
+class CosineKernel
+{
+    private final SparseMatrix tdm;
+    private final double[] unit;    /* cell values scaled by their row's 1 / norm */
+    private final double[] norm;
+
+    /**
+     * @param tdm the rows to compare
+     */
+    public CosineKernel(SparseMatrix tdm) {
+        this.tdm = tdm;
+        this.unit = new double[tdm.nnz()];
+        this.norm = new double[tdm.rows()];
+        for (int r = 0; r < tdm.rows(); r++) {
+            double sum = 0;
+            for (int i = tdm.rowStart(r); i < tdm.rowEnd(r); i++) sum += (double) tdm.value(i) * tdm.value(i);
+            norm[r] = Math.sqrt(sum);
+            double scale = sum > 0 ? 1 / norm[r] : 0;
+            for (int i = tdm.rowStart(r); i < tdm.rowEnd(r); i++) unit[i] = tdm.value(i) * scale;
+        }
+    }
+
+    public SparseMatrix matrix() { return tdm; }
+
+    public int rows() { return norm.length; }
+
+    /** Returns the length of row r, 0 for an empty row. */
+    public double norm(int r) { return norm[r]; }
+
+    /** Returns cell i of the matrix scaled to its row's unit length. */
+    public double unit(int i) { return unit[i]; }
+
+    /**
+     * Returns the dot product of unit row r with v[off..off+columns), i.e.
+     * the cosine when v has unit length.
+     * @param r
+     * @param v dense vector over the columns
+     * @param off where the vector starts in v
+     */
+    public double dot(int r, double[] v, int off) {
+        double sum = 0;
+        for (int i = tdm.rowStart(r); i < tdm.rowEnd(r); i++) sum += unit[i] * v[off + tdm.col(i)];
+        return sum;
+    }
+
+    /**
+     * Returns the cosine of row r with a vector of any length.
+     * @param r
+     * @param v dense vector over the columns
+     * @param off where the vector starts in v
+     * @param vNorm length of the vector
+     */
+    public double cosine(int r, double[] v, int off, double vNorm) {
+        return vNorm > 0 ? dot(r, v, off) / vNorm : 0;
+    }
+
+    /** Returns the cosine of rows a and b, merging their sorted cells. */
+    public double cosine(int a, int b) {
+        double sum = 0;
+        int i = tdm.rowStart(a), ie = tdm.rowEnd(a);
+        int j = tdm.rowStart(b), je = tdm.rowEnd(b);
+        while (i < ie && j < je) {
+            int ci = tdm.col(i), cj = tdm.col(j);
+            if (ci == cj) sum += unit[i++] * unit[j++];
+            else if (ci < cj) i++;
+            else j++;
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the unit length centroid closest to row r, the first on ties.
+     * @param r
+     * @param centroids k vectors of matrix().columns() values, one after the other
+     * @param k
+     * @param similarity receives the cosine with the closest centroid at index r
+     * @return the index of the closest centroid
+     */
+    public int nearest(int r, double[] centroids, int k, double[] similarity) {
+        int d = tdm.columns();
+        int best = 0;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int j = 0, off = 0; j < k; j++, off += d) {
+            double dot = dot(r, centroids, off);
+            if (dot > max) {
+                max = dot;
+                best = j;
+            }
+        }
+        similarity[r] = max;
+        return best;
+    }
+
+    /** Adds a times unit row r to v[off..off+columns). */
+    public void addTo(int r, double a, double[] v, int off) {
+        for (int i = tdm.rowStart(r); i < tdm.rowEnd(r); i++) v[off + tdm.col(i)] += a * unit[i];
+    }
+
+    /** Scales v[off..off+n) to unit length; a zero vector is left as it is. */
+    static void normalize(double[] v, int off, int n) {
+        // four partial sums break the dependency chain of one running sum
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = off, end = off + n;
+        for (; i + 3 < end; i += 4) {
+            s0 += v[i] * v[i];
+            s1 += v[i + 1] * v[i + 1];
+            s2 += v[i + 2] * v[i + 2];
+            s3 += v[i + 3] * v[i + 3];
+        }
+        for (; i < end; i++) s0 += v[i] * v[i];
+        double sum = (s0 + s1) + (s2 + s3);
+        if (sum == 0) return;
+        double scale = 1 / Math.sqrt(sum);
+        for (i = off; i < end; i++) v[i] *= scale;
+    }
+}
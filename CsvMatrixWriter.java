@@ -0,0 +1,143 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the term document matrix as comma separated text, one row per
+ * line, each cell followed by ", " as p4.m expects.
+ *
+ * The file is opened and truncated once and every row goes through one
+ * large byte buffer, so the file system sees a few big writes rather than
+ * an open, flush and close per row. Rows can optionally be gzip
+ * compressed through the JDK's Deflater. Failures are thrown as
+ * IOException rather than swallowed.
+ */
+class CsvMatrixWriter implements Closeable
+{
+    private static final byte[] SEPARATOR = {',', ' '};
+    private static final byte[] ZERO = {'0'};
+
+    private final OutputStream out;
+    private final byte[] buf = new byte[1 << 20];
+    private int len;
+
+    /**
+     * Creates or truncates the file.
+     * @param pathName
+     * @param gzip compress the rows
+     * @throws IOException if the file cannot be created
+     */
+    public CsvMatrixWriter(String pathName, boolean gzip) throws IOException {
+        OutputStream file = Files.newOutputStream(Paths.get(pathName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            out = gzip ? new GZIPOutputStream(file, 1 << 16) : file;
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /** Writes one row of cells, e.g. the keyword set. */
+    public void writeRow(List<String> row) throws IOException {
+        for (int i = 0; i < row.size(); i++) {
+            put(row.get(i));
+            put(SEPARATOR);
+        }
+        endRow();
+    }
+
+    /**
+     * Writes a label followed by every column of a matrix row, zeros
+     * included, without making a String per cell.
+     * @param label
+     * @param tdm
+     * @param row
+     */
+    public void writeRow(String label, SparseMatrix tdm, int row) throws IOException {
+        put(label);
+        put(SEPARATOR);
+        int i = tdm.rowStart(row), end = tdm.rowEnd(row);
+        for (int c = 0; c < tdm.columns(); c++) {
+            if (i < end && tdm.col(i) == c) put(tdm.value(i++));
+            else put(ZERO);
+            put(SEPARATOR);
+        }
+        endRow();
+    }
+
+    /** Writes the buffered rows and closes the file. */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void put(String s) throws IOException {
+        // cells are mostly ASCII, which needs no encoder
+        int n = s.length();
+        for (int c = 0; c < n; c++) {
+            char ch = s.charAt(c);
+            if (ch >= 128) {
+                put(s.substring(c).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            if (len == buf.length) flush();
+            buf[len++] = (byte) ch;
+        }
+    }
+
+    /* whole numbers as integers, digit by digit, anything else as Float.toString */
+    private void put(float v) throws IOException {
+        int n = (int) v;
+        if (n != v || n == Integer.MIN_VALUE) {
+            put(Float.toString(v));
+            return;
+        }
+        if (len + 11 > buf.length) flush();
+        if (n < 0) {
+            buf[len++] = '-';
+            n = -n;
+        }
+        int end = len + digits(n);
+        for (int p = end - 1; p >= len; p--, n /= 10) buf[p] = (byte) ('0' + n % 10);
+        len = end;
+    }
+
+    private static int digits(int n) {
+        int d = 1;
+        while (n >= 10) {
+            n /= 10;
+            d++;
+        }
+        return d;
+    }
+
+    private void put(byte[] b) throws IOException {
+        if (len + b.length > buf.length) flush();
+        if (b.length > buf.length) {
+            out.write(b);
+            return;
+        }
+        System.arraycopy(b, 0, buf, len, b.length);
+        len += b.length;
+    }
+
+    private void endRow() throws IOException {
+        if (len == buf.length) flush();
+        buf[len++] = '\n';
+    }
+
+    private void flush() throws IOException {
+        out.write(buf, 0, len);
+        len = 0;
+    }
+}
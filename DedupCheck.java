@@ -0,0 +1,63 @@
+/**
+ * Check for the -dedup option: builds the term document matrix of a corpus
+ * with near duplicates dropped and reports every column left without a
+ * cell, i.e. a term only the dropped paragraphs had.
+ *
+ * Runs with all terms kept and with the vocabulary pruned, each on one and
+ * on several threads, which must give the same matrix.
+ *
+ * Usage: java DedupCheck [paragraphs-file [stop-words-file [threshold]]]
+ * (defaults to paragraphs.txt, stop_words.txt and 0.8)
+ * Exits with status 1 if a column is empty or the runs disagree.
+ */
+class DedupCheck
+{
+    public static void main(String[] args) throws Exception {
+        String corpus = args.length > 0 ? args[0] : "paragraphs.txt";
+        String stopWordsFile = args.length > 1 ? args[1] : "stop_words.txt";
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.8;
+        StopWordFilter stopWords = StopWordFilter.load(stopWordsFile);
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        int failures = 0;
+        for (int top : new int[] { 0, 500 }) {
+            SparseMatrix single = null;
+            for (int t : new int[] { 1, threads }) {
+                TermDictionary dictionary = new TermDictionary();
+                Deduplicator duplicates = new Deduplicator(threshold, 42);
+                SparseMatrix tdm = Stemmer.prepFeatures(corpus, stopWords, new StemCache(StemCache.DEFAULT_CAPACITY),
+                        t, dictionary, new Weighting(Weighting.RAW, false),
+                        new VocabularyPruner(top, VocabularyPruner.CORPUS, 1, 1), duplicates, null);
+                boolean[] used = new boolean[tdm.columns()];
+                for (int i = 0; i < tdm.nnz(); i++) used[tdm.col(i)] = true;
+                int empty = 0;
+                for (int c = 0; c < used.length; c++) {
+                    if (used[c]) continue;
+                    if (empty++ < 20) System.out.println("top " + top + ", threads " + t + ": no paragraph has "
+                            + dictionary.term(c));
+                }
+                System.out.println("top " + top + ", threads " + t + ": " + duplicates.duplicates() + " of "
+                        + duplicates.paragraphs() + " paragraphs dropped, " + tdm.columns() + " columns, "
+                        + empty + " empty");
+                failures += empty;
+                if (single == null) {
+                    single = tdm;
+                } else if (!same(single, tdm)) {
+                    System.out.println("top " + top + ": threads " + t + " differ from one thread");
+                    failures++;
+                }
+            }
+        }
+        if (failures > 0) System.exit(1);
+    }
+
+    private static boolean same(SparseMatrix a, SparseMatrix b) {
+        if (a.rows() != b.rows() || a.columns() != b.columns() || a.nnz() != b.nnz()) return false;
+        for (int r = 0; r <= a.rows(); r++) {
+            if ((r < a.rows() ? a.rowStart(r) : a.nnz()) != (r < b.rows() ? b.rowStart(r) : b.nnz())) return false;
+        }
+        for (int i = 0; i < a.nnz(); i++) {
+            if (a.col(i) != b.col(i) || a.value(i) != b.value(i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,278 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drops paragraphs that are near duplicates of an earlier one before they
+ * become rows of the term document matrix, so that repeated text neither
+ * inflates the matrix nor pulls the clusters towards it.
+ *
+ * Two paragraphs are near duplicates when the Jaccard similarity of their
+ * sets of stemmed terms, |A and B| / |A or B|, is at least the threshold.
+ * Stems are the shingles: the matrix only sees which stems a paragraph
+ * has, so paragraphs with nearly the same stems give nearly the same rows.
+ *
+ * Each paragraph gets a MinHash signature, the smallest of each of
+ * BANDS * ROWS hashes over its stems; two signatures agree at a position
+ * with probability equal to the Jaccard similarity. Signatures
+ * are cut into BANDS bands of ROWS values and every kept paragraph is
+ * filed under the hash of each band (locality-sensitive hashing). A new
+ * paragraph is only compared with the paragraphs sharing one of its
+ * bands, which pairs of similarity s do with probability
+ * 1 - (1 - s^ROWS)^BANDS, over 99% from s = 0.8 but under 2% at s = 0.3,
+ * so the cost grows with the number of paragraphs rather than its square. A
+ * candidate is a duplicate if the exact similarity of the two term sets
+ * reaches the threshold; the most similar candidate, the earliest of
+ * equals, is the one reported.
+ *
+ * Hashing every stem BANDS * ROWS times is most of the work, so sign()
+ * runs on the ingest threads, each paragraph against its task's own
+ * dictionary; stems rather than term ids are hashed so that every task
+ * agrees. Only the band lookups and the comparisons of duplicateOf run in
+ * corpus order. A signature is dropped once its paragraph is filed: what
+ * stays per kept paragraph is its sorted term ids, one int per distinct
+ * stem as in its matrix row, and one chain link per band.
+ *
+ * Paragraphs without terms are never duplicates. sign() may be called
+ * from any thread; duplicateOf() is not thread safe and takes the
+ * paragraphs in corpus order.
+ */
+class Deduplicator
+{
+    static final int BANDS = 20;
+    static final int ROWS = 6;
+    private static final int HASHES = BANDS * ROWS;
+
+    private final double threshold;
+    private final long[] seeds = new long[HASHES];
+
+    private int paragraphs;
+    private int kept;
+    private int[] keptParagraph = new int[256];     /* paragraph number of each kept paragraph */
+    private int[] termStart = new int[257];         /* kept paragraph i has terms[termStart[i], termStart[i + 1]) */
+    private int[] terms = new int[4096];            /* sorted term ids of every kept paragraph, back to back */
+    private long nanos;
+    private final LongAdder signNanos = new LongAdder();
+    private int duplicates;
+    private int[] duplicateParagraph = new int[64];
+    private int[] originalParagraph = new int[64];
+    private double[] duplicateSimilarity = new double[64];
+
+    /* band hash -> latest kept paragraph filed under it, chained through previous */
+    private long[] keys = new long[1024];
+    private int[] heads = new int[1024];            /* entry + 1, 0 = empty slot */
+    private int used;
+    private int[] previous = new int[256 * BANDS];  /* entry + 1 of the same key, per entry = kept * BANDS + band */
+    private int[] seen = new int[256];              /* paragraph + 1 that last considered each kept paragraph */
+    private int[] sorted = new int[64];
+    private final long[] bands = new long[BANDS];
+
+    /**
+     * @param threshold smallest Jaccard similarity of two duplicates, in (0, 1]
+     * @param seed for the MinHash functions
+     */
+    public Deduplicator(double threshold, long seed) {
+        if (!(threshold > 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("similarity threshold must be in (0, 1]: " + threshold);
+        }
+        this.threshold = threshold;
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int h = 0; h < HASHES; h++) seeds[h] = random.nextLong();
+    }
+
+    /**
+     * Computes the MinHash signature of a paragraph for duplicateOf().
+     * @param doc its terms, numbered by dictionary
+     * @param dictionary the stems of doc's term ids
+     */
+    public void sign(Document doc, TermDictionary dictionary) {
+        if (doc.size() == 0) return;
+        long start = System.nanoTime();
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int t = 0; t < doc.size(); t++) {
+            long stem = dictionary.hash(doc.terms[t]);
+            for (int h = 0; h < HASHES; h++) {
+                int v = hash(stem, seeds[h]);
+                if (v < signature[h]) signature[h] = v;
+            }
+        }
+        doc.signature = signature;
+        signNanos.add(System.nanoTime() - start);
+    }
+
+    /**
+     * Takes the next paragraph of the corpus.
+     * @param doc its terms, signed by sign()
+     * @return the number, from 0, of the earlier paragraph it duplicates,
+     *         or -1 if it is kept
+     */
+    public int duplicateOf(Document doc) {
+        long start = System.nanoTime();
+        int original = check(doc);
+        doc.signature = null;
+        nanos += System.nanoTime() - start;
+        return original;
+    }
+
+    /* duplicateOf without the timing */
+    private int check(Document doc) {
+        int paragraph = paragraphs++;
+        int n = doc.size();
+        if (n == 0) {
+            keep(paragraph, null, 0);
+            return -1;
+        }
+        int[] signature = doc.signature;
+        if (signature == null) throw new IllegalArgumentException("paragraph " + paragraph + " was not signed");
+        if (n > sorted.length) sorted = new int[Math.max(n, sorted.length * 2)];
+        System.arraycopy(doc.terms, 0, sorted, 0, n);
+        Arrays.sort(sorted, 0, n);
+
+        int best = -1;
+        double bestSimilarity = 0;
+        for (int band = 0; band < BANDS; band++) {
+            bands[band] = bandKey(signature, band);
+            int slot = find(bands[band]);
+            for (int e = heads[slot] - 1; e >= 0; e = previous[e] - 1) {
+                int other = e / BANDS;
+                if (seen[other] == paragraph + 1) continue;
+                seen[other] = paragraph + 1;
+                double similarity = similarity(other, n);
+                if (similarity >= threshold - 1e-9
+                        && (similarity > bestSimilarity || similarity == bestSimilarity && other < best)) {
+                    best = other;
+                    bestSimilarity = similarity;
+                }
+            }
+        }
+        if (best < 0) {
+            keep(paragraph, bands, n);
+            return -1;
+        }
+        if (duplicates == duplicateParagraph.length) {
+            duplicateParagraph = Arrays.copyOf(duplicateParagraph, duplicates * 2);
+            originalParagraph = Arrays.copyOf(originalParagraph, duplicates * 2);
+            duplicateSimilarity = Arrays.copyOf(duplicateSimilarity, duplicates * 2);
+        }
+        duplicateParagraph[duplicates] = paragraph;
+        originalParagraph[duplicates] = keptParagraph[best];
+        duplicateSimilarity[duplicates++] = bestSimilarity;
+        return keptParagraph[best];
+    }
+
+    /** Returns the number of paragraphs taken. */
+    public int paragraphs() { return paragraphs; }
+
+    /** Returns the number of paragraphs kept, the rows of the matrix. */
+    public int kept() { return kept; }
+
+    /** Returns the paragraph number, from 0, of every kept paragraph in order. */
+    public int[] keptParagraphs() { return Arrays.copyOf(keptParagraph, kept); }
+
+    /** Returns the number of paragraphs dropped as duplicates. */
+    public int duplicates() { return duplicates; }
+
+    /** Returns the paragraph number, from 0, of the i-th duplicate. */
+    public int duplicate(int i) { return duplicateParagraph[i]; }
+
+    /** Returns the paragraph number, from 0, of the kept paragraph the i-th duplicate repeats. */
+    public int original(int i) { return originalParagraph[i]; }
+
+    /** Returns the Jaccard similarity of the i-th duplicate with its original. */
+    public double similarity(int i) { return duplicateSimilarity[i]; }
+
+    /** Returns the nanoseconds spent in duplicateOf, the part that runs in corpus order. */
+    public long nanos() { return nanos; }
+
+    /** Returns the nanoseconds spent in sign(), summed over the threads that called it. */
+    public long signNanos() { return signNanos.sum(); }
+
+    /* the Jaccard similarity of the n sorted terms at hand with kept paragraph other */
+    private double similarity(int other, int n) {
+        int i = termStart[other], end = termStart[other + 1], j = 0, common = 0;
+        while (i < end && j < n) {
+            if (terms[i] < sorted[j]) i++;
+            else if (terms[i] > sorted[j]) j++;
+            else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return (double) common / (end - termStart[other] + n - common);
+    }
+
+    /* files a kept paragraph with its n sorted terms under its band keys; an empty one under none */
+    private void keep(int paragraph, long[] bands, int n) {
+        if (kept == keptParagraph.length) {
+            keptParagraph = Arrays.copyOf(keptParagraph, kept * 2);
+            termStart = Arrays.copyOf(termStart, kept * 2 + 1);
+            previous = Arrays.copyOf(previous, kept * 2 * BANDS);
+            seen = Arrays.copyOf(seen, kept * 2);
+        }
+        int from = termStart[kept];
+        if (from + n > terms.length) terms = Arrays.copyOf(terms, Math.max(from + n, terms.length * 2));
+        System.arraycopy(sorted, 0, terms, from, n);
+        termStart[kept + 1] = from + n;
+        keptParagraph[kept] = paragraph;
+        if (bands != null) {
+            for (int band = 0; band < BANDS; band++) {
+                long key = bands[band];
+                int slot = find(key);
+                if (heads[slot] == 0) {
+                    keys[slot] = key;
+                    used++;
+                }
+                int e = kept * BANDS + band;
+                previous[e] = heads[slot];
+                heads[slot] = e + 1;
+                if (used * 2 > heads.length) rehash(heads.length * 2);
+            }
+        }
+        // an empty paragraph is never filed under a band, so never a candidate
+        kept++;
+    }
+
+    /* the band number and its ROWS values mixed into one key */
+    private static long bandKey(int[] signature, int band) {
+        long h = band * 0x9E3779B97F4A7C15L;
+        for (int r = band * ROWS; r < (band + 1) * ROWS; r++) h = mix(h ^ (signature[r] & 0xffffffffL));
+        return h;
+    }
+
+    /* the slot holding key, or the empty slot where it would go */
+    private int find(long key) {
+        int mask = heads.length - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (heads[slot] != 0 && keys[slot] != key) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+        keys = new long[capacity];
+        heads = new int[capacity];
+        for (int s = 0; s < oldHeads.length; s++) {
+            if (oldHeads[s] == 0) continue;
+            int slot = find(oldKeys[s]);
+            keys[slot] = oldKeys[s];
+            heads[slot] = oldHeads[s];
+        }
+    }
+
+    private static int hash(long stem, long seed) {
+        return (int) (mix(stem + seed) >>> 32);
+    }
+
+    /* the 64 bit finaliser of MurmurHash3 */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * One paragraph of the corpus after its words have been combined by stem
+ * (step G): the ids of its distinct terms in order of first occurrence
+ * and how many times each occurs.
+ *
+ * Only distinct terms are kept, as ints, so a document costs memory in
+ * proportion to its vocabulary rather than to its length.
+ */
+class Document
+{
+    final int[] terms;
+    final int[] counts;
+    /** MinHash signature from Deduplicator.sign, until the paragraph is checked */
+    int[] signature;
+
+    Document(int[] terms, int[] counts) {
+        this.terms = terms;
+        this.counts = counts;
+    }
+
+    /**
+     * Takes a snapshot of the terms counted for one paragraph.
+     * @param counter
+     * @return the combined document
+     */
+    static Document of(TermCounter counter) {
+        int n = counter.size();
+        int[] terms = new int[n];
+        int[] counts = new int[n];
+        for (int t = 0; t < n; t++) {
+            terms[t] = counter.term(t);
+            counts[t] = counter.count(t);
+        }
+        return new Document(terms, counts);
+    }
+
+    /**
+     * Renumbers the terms, e.g. from a task's own dictionary into the
+     * corpus dictionary.
+     * @param map the new id of each old id
+     */
+    void remap(int[] map) {
+        for (int t = 0; t < terms.length; t++) terms[t] = map[terms[t]];
+    }
+
+    /**
+     * Returns a copy holding only the terms that are kept, renumbered.
+     * @param map the new id of each old id, -1 to drop the term
+     */
+    Document keep(int[] map) {
+        int n = 0;
+        for (int term : terms) if (map[term] >= 0) n++;
+        int[] t = new int[n];
+        int[] c = new int[n];
+        for (int i = 0, j = 0; i < terms.length; i++) {
+            if (map[terms[i]] < 0) continue;
+            t[j] = map[terms[i]];
+            c[j++] = counts[i];
+        }
+        return new Document(t, c);
+    }
+
+    /** Returns the number of distinct terms. */
+    int size() { return terms.length; }
+}
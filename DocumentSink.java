@@ -0,0 +1,8 @@
+/**
+ * Receives the paragraphs of the corpus one at a time, in corpus order,
+ * as soon as they have been combined.
+ */
+interface DocumentSink
+{
+    void document(Document doc);
+}
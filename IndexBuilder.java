@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Builds the inverted index of the corpus as the paragraphs come out of
+ * the counting pass: for every term the paragraphs that contain it, in
+ * order, with the number of times it occurs in each.
+ *
+ * Postings are compressed as they arrive. A posting is the gap from the
+ * previous paragraph containing the term followed by the count, both as
+ * variable-byte integers, 7 bits a byte with the high bit set on all but
+ * the last, so most postings take two bytes. Each term's list grows in
+ * its own byte array; write() then lays the lists out in a segment file
+ * that InvertedIndex maps.
+ *
+ * Paragraphs are numbered in the order they are given, like the rows of
+ * the term document matrix. Not thread safe.
+ */
+class IndexBuilder implements DocumentSink
+{
+    /* postings between skip entries */
+    static final int BLOCK = 128;
+
+    private byte[][] lists = new byte[256][];
+    private int[] used = new int[256];
+    private int[] last = new int[256];      /* last paragraph added to each list */
+    private int[] df = new int[256];
+    private int[] maxTf = new int[256];
+    private int terms;
+    private int[] lengths = new int[256];   /* words in each paragraph */
+    private int documents;
+    private long postings;
+
+    /** Adds the next paragraph. */
+    public void document(Document doc) {
+        if (documents == lengths.length) lengths = Arrays.copyOf(lengths, documents * 2);
+        int length = 0;
+        for (int t = 0; t < doc.size(); t++) {
+            int term = doc.terms[t], tf = doc.counts[t];
+            length += tf;
+            grow(term);
+            byte[] list = lists[term];
+            if (list == null) list = lists[term] = new byte[16];
+            if (used[term] + 10 > list.length) list = lists[term] = Arrays.copyOf(list, list.length * 2);
+            int n = putVarint(list, used[term], documents - last[term]);
+            used[term] = putVarint(list, n, tf);
+            last[term] = documents;
+            df[term]++;
+            maxTf[term] = Math.max(maxTf[term], tf);
+        }
+        postings += doc.size();
+        lengths[documents++] = length;
+    }
+
+    /** Returns the number of paragraphs added. */
+    public int documents() { return documents; }
+
+    /** Returns the number of (paragraph, term) postings added. */
+    public long postings() { return postings; }
+
+    /**
+     * Writes the index segment, see InvertedIndex for the layout.
+     * @param pathName replaced if it exists
+     * @param dictionary gives the stem of every term id
+     * @return the size of the file in bytes
+     * @throws IOException if the file cannot be written
+     */
+    public long write(String pathName, TermDictionary dictionary) throws IOException {
+        int terms = Math.max(this.terms, dictionary.size());
+        byte[][] stems = new byte[terms][];
+        int vocabLength = 0;
+        for (int t = 0; t < terms; t++) {
+            stems[t] = t < dictionary.size() ? dictionary.term(t).getBytes(StandardCharsets.UTF_8) : new byte[0];
+            vocabLength += stems[t].length;
+        }
+        Integer[] sorted = new Integer[terms];
+        for (int t = 0; t < terms; t++) sorted[t] = t;
+        Arrays.sort(sorted, (a, b) -> Arrays.compareUnsigned(stems[a], stems[b]));
+
+        // lay the lists out so that none crosses a mapped page
+        long[] start = new long[terms + 1];
+        int[] skipStart = new int[terms + 1];
+        long offset = 0;
+        int skips = 0;
+        for (int t = 0; t < terms; t++) {
+            int n = t < this.terms ? used[t] : 0;
+            if (n > InvertedIndex.PAGE_SIZE) throw new IOException("posting list too long for a page: " + n);
+            if ((offset & InvertedIndex.PAGE_MASK) + n > InvertedIndex.PAGE_SIZE) {
+                offset = (offset | InvertedIndex.PAGE_MASK) + 1;
+            }
+            start[t] = offset;
+            offset += n;
+            skipStart[t] = skips;
+            if (t < this.terms && df[t] > 0) skips += (df[t] - 1) / BLOCK;
+        }
+        start[terms] = offset;
+        skipStart[terms] = skips;
+
+        long vocab = InvertedIndex.HEADER;
+        long order = SegmentIO.align(vocab + 4L * (terms + 1) + vocabLength);
+        long lengthOffset = SegmentIO.align(order + 4L * terms);
+        long termOffset = SegmentIO.align(lengthOffset + 4L * documents);
+        long skipOffset = SegmentIO.align(termOffset + (long) InvertedIndex.TERM_ENTRY * (terms + 1));
+        long postingOffset = SegmentIO.align(skipOffset + 8L * skips);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(pathName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SegmentIO.Writer out = new SegmentIO.Writer(channel);
+            out.putInt(InvertedIndex.MAGIC);
+            out.putInt(InvertedIndex.VERSION);
+            out.putInt(documents);
+            out.putInt(terms);
+            out.putLong(postings);
+            out.putLong(offset);
+            out.putLong(vocab);
+            out.putLong(order);
+            out.putLong(lengthOffset);
+            out.putLong(termOffset);
+            out.putLong(skipOffset);
+            out.putLong(postingOffset);
+            out.putInt(BLOCK);
+            out.padTo(vocab);
+
+            int at = 0;
+            for (int t = 0; t < terms; t++) {
+                out.putInt(at);
+                at += stems[t].length;
+            }
+            out.putInt(at);
+            for (int t = 0; t < terms; t++) out.put(stems[t], 0, stems[t].length);
+            out.padTo(order);
+            for (int t = 0; t < terms; t++) out.putInt(sorted[t]);
+            out.padTo(lengthOffset);
+            for (int d = 0; d < documents; d++) out.putInt(lengths[d]);
+            out.padTo(termOffset);
+            for (int t = 0; t <= terms; t++) {
+                boolean listed = t < this.terms;
+                out.putLong(start[t]);
+                out.putInt(listed ? df[t] : 0);
+                out.putInt(listed ? maxTf[t] : 0);
+                out.putInt(skipStart[t]);
+                out.putInt(0);
+            }
+            out.padTo(skipOffset);
+            for (int t = 0; t < this.terms; t++) writeSkips(out, t);
+            out.padTo(postingOffset);
+            for (int t = 0; t < terms; t++) {
+                out.padTo(postingOffset + start[t]);
+                if (t < this.terms && used[t] > 0) out.put(lists[t], 0, used[t]);
+            }
+            out.flush();
+            return out.position();
+        }
+    }
+
+    /* for every block after the first: the paragraph before it and where it starts in the list */
+    private void writeSkips(SegmentIO.Writer out, int term) throws IOException {
+        byte[] list = lists[term];
+        int pos = 0, doc = 0;
+        for (int p = 0; p < df[term]; p++) {
+            if (p > 0 && p % BLOCK == 0) {
+                out.putInt(doc);
+                out.putInt(pos);
+            }
+            int gap = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = list[pos++];
+                gap |= (b & 0x7f) << shift;
+                if (b >= 0) break;
+            }
+            doc += gap;
+            while (list[pos++] < 0) ;    /* the count */
+        }
+    }
+
+    private void grow(int term) {
+        if (term >= lists.length) {
+            int size = Math.max(term + 1, lists.length * 2);
+            lists = Arrays.copyOf(lists, size);
+            used = Arrays.copyOf(used, size);
+            last = Arrays.copyOf(last, size);
+            df = Arrays.copyOf(df, size);
+            maxTf = Arrays.copyOf(maxTf, size);
+        }
+        terms = Math.max(terms, term + 1);
+    }
+
+    /* writes v as a variable-byte integer at b[pos], returns the position after it */
+    static int putVarint(byte[] b, int pos, int v) {
+        while ((v & ~0x7f) != 0) {
+            b[pos++] = (byte) (v | 0x80);
+            v >>>= 7;
+        }
+        b[pos++] = (byte) v;
+        return pos;
+    }
+
+}
@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Inverted index segment written by IndexBuilder, memory-mapped so that
+ * "which paragraphs contain stem X" is answered by decoding one posting
+ * list instead of scanning the term document matrix.
+ *
+ * Layout, little-endian, every section starting on an 8 byte boundary:
+ *   header    int magic "IDX1", int version, int documents, int terms,
+ *             long postings, long posting bytes, then the long offsets of
+ *             the six sections and int postings per skip block
+ *   vocab     int[terms + 1] offsets into the UTF-8 stem bytes that follow
+ *   order     int[terms] term ids sorted by stem bytes, for find()
+ *   lengths   int[documents] words in each paragraph
+ *   terms     per term and one past the last: long offset of its posting
+ *             list, int df, int largest tf, int first skip entry, int 0
+ *   skips     (int paragraph, int list offset) before every block of
+ *             postings but the first
+ *   postings  per term, (gap, tf) variable-byte pairs; see IndexBuilder
+ *
+ * Posting lists are laid out so that none crosses a 1 GB page, so each is
+ * read from a single mapping however large the segment grows.
+ */
+class InvertedIndex
+{
+    static final int MAGIC = 'I' | 'D' << 8 | 'X' << 16 | '1' << 24;
+    static final int VERSION = 1;
+    static final int HEADER = 128;
+    static final int TERM_ENTRY = 24;
+    static final int PAGE_BITS = 30;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final int documents, terms, block;
+    private final long postings;
+    private final IntBuffer vocabOffsets;
+    private final ByteBuffer vocabBytes;
+    private final IntBuffer order;
+    private final IntBuffer lengths;
+    private final ByteBuffer termTable;
+    private final IntBuffer skips;
+    private final ByteBuffer[] pages;
+    private final double averageLength;
+
+    private InvertedIndex(FileChannel channel) throws IOException {
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != MAGIC) throw new IOException("not an index segment");
+        if (header.getInt(4) != VERSION) throw new IOException("unsupported index version " + header.getInt(4));
+        documents = header.getInt(8);
+        terms = header.getInt(12);
+        postings = header.getLong(16);
+        long postingBytes = header.getLong(24);
+        long vocab = header.getLong(32), orderOffset = header.getLong(40), lengthOffset = header.getLong(48);
+        long termOffset = header.getLong(56), skipOffset = header.getLong(64), postingOffset = header.getLong(72);
+        block = header.getInt(80);
+
+        vocabOffsets = SegmentIO.map(channel, vocab, 4L * (terms + 1)).asIntBuffer();
+        vocabBytes = SegmentIO.map(channel, vocab + 4L * (terms + 1), vocabOffsets.get(terms));
+        order = SegmentIO.map(channel, orderOffset, 4L * terms).asIntBuffer();
+        lengths = SegmentIO.map(channel, lengthOffset, 4L * documents).asIntBuffer();
+        termTable = SegmentIO.map(channel, termOffset, (long) TERM_ENTRY * (terms + 1));
+        skips = SegmentIO.map(channel, skipOffset, postingOffset - skipOffset).asIntBuffer();
+        pages = new ByteBuffer[(int) ((postingBytes + PAGE_MASK) >>> PAGE_BITS)];
+        for (int p = 0; p < pages.length; p++) {
+            long first = (long) p << PAGE_BITS;
+            pages[p] = SegmentIO.map(channel, postingOffset + first, Math.min(postingBytes - first, PAGE_SIZE));
+        }
+        long words = 0;
+        for (int d = 0; d < documents; d++) words += lengths.get(d);
+        averageLength = documents > 0 ? (double) words / documents : 1;
+    }
+
+    /**
+     * Maps a segment written by IndexBuilder. The mapping stays valid
+     * after the file is closed.
+     * @param pathName
+     * @return the mapped index
+     * @throws IOException if the file cannot be read or is not an index segment
+     */
+    public static InvertedIndex load(String pathName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(pathName), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER) throw new IOException("not an index segment");
+            return new InvertedIndex(channel);
+        }
+    }
+
+    /** Returns the number of paragraphs. */
+    public int documents() { return documents; }
+
+    /** Returns the number of term ids, the columns of the matrix it was built with. */
+    public int terms() { return terms; }
+
+    /** Returns the number of (paragraph, term) postings. */
+    public long postings() { return postings; }
+
+    /** Returns the number of words in a paragraph. */
+    public int length(int doc) { return lengths.get(doc); }
+
+    /** Returns the average number of words in a paragraph. */
+    public double averageLength() { return averageLength; }
+
+    /** Returns the number of paragraphs that contain a term. */
+    public int df(int term) { return termTable.getInt(term * TERM_ENTRY + 8); }
+
+    /** Returns the most times a term occurs in any one paragraph. */
+    public int maxTf(int term) { return termTable.getInt(term * TERM_ENTRY + 12); }
+
+    /** Returns the stem of a term. */
+    public String stem(int term) {
+        int from = vocabOffsets.get(term), to = vocabOffsets.get(term + 1);
+        byte[] b = new byte[to - from];
+        for (int i = 0; i < b.length; i++) b[i] = vocabBytes.get(from + i);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Looks up a stem by binary search over the sorted vocabulary.
+     * @param stem e.g. from Stemmer or StemCache
+     * @return its term id, or -1 if no paragraph had it
+     */
+    public int find(String stem) {
+        byte[] key = stem.getBytes(StandardCharsets.UTF_8);
+        int lo = 0, hi = terms - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int term = order.get(mid);
+            int c = compare(term, key);
+            if (c == 0) return term;
+            if (c < 0) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Opens the posting list of a term.
+     * @param term
+     * @return a cursor before its first paragraph
+     */
+    public Postings postings(int term) { return new Postings(term); }
+
+    /* compares a term's stem bytes with key, unsigned */
+    private int compare(int term, byte[] key) {
+        int from = vocabOffsets.get(term), n = vocabOffsets.get(term + 1) - from;
+        for (int i = 0; i < Math.min(n, key.length); i++) {
+            int c = (vocabBytes.get(from + i) & 0xff) - (key[i] & 0xff);
+            if (c != 0) return c;
+        }
+        return n - key.length;
+    }
+
+    /**
+     * Cursor over one posting list, paragraph ids ascending. Starts before
+     * the first posting; doc() is END once the list is exhausted.
+     */
+    final class Postings
+    {
+        static final int END = Integer.MAX_VALUE;
+
+        private final int term;
+        private final ByteBuffer page;
+        private final int start;        /* offset of the list in its page */
+        private final int df;
+        private final int skipStart, skipCount;
+        private int pos;
+        private int read;               /* postings decoded so far */
+        private int doc = -1, tf;
+
+        private Postings(int term) {
+            this.term = term;
+            long offset = termTable.getLong(term * TERM_ENTRY);
+            this.page = pages.length > 0 ? pages[(int) (offset >>> PAGE_BITS)] : null;
+            this.start = (int) (offset & PAGE_MASK);
+            this.df = InvertedIndex.this.df(term);
+            this.skipStart = termTable.getInt(term * TERM_ENTRY + 16);
+            this.skipCount = termTable.getInt((term + 1) * TERM_ENTRY + 16) - skipStart;
+            this.pos = start;
+        }
+
+        public int term() { return term; }
+
+        /** Returns the number of paragraphs in the list. */
+        public int df() { return df; }
+
+        /** Returns the current paragraph, -1 before the first and END after the last. */
+        public int doc() { return doc; }
+
+        /** Returns the occurrences of the term in the current paragraph. */
+        public int tf() { return tf; }
+
+        /** Moves to the next paragraph and returns it, or END. */
+        public int next() {
+            if (read == df) return doc = END;
+            int gap = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = page.get(pos++);
+                gap |= (b & 0x7f) << shift;
+                if (b >= 0) break;
+            }
+            int count = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = page.get(pos++);
+                count |= (b & 0x7f) << shift;
+                if (b >= 0) break;
+            }
+            doc = (read == 0 ? 0 : doc) + gap;
+            tf = count;
+            read++;
+            return doc;
+        }
+
+        /**
+         * Moves to the first paragraph at or after target, jumping whole
+         * blocks of postings by the skip entries.
+         * @param target
+         * @return the paragraph, or END
+         */
+        public int advance(int target) {
+            if (doc >= target) return doc;
+            // the last block that starts after a paragraph below target
+            int lo = 0, hi = skipCount - 1, found = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (skips.get(2 * (skipStart + mid)) < target) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            if (found >= 0 && (found + 1) * block > read) {
+                doc = skips.get(2 * (skipStart + found));
+                pos = start + skips.get(2 * (skipStart + found) + 1);
+                read = (found + 1) * block;
+            }
+            while (doc < target) next();
+            return doc;
+        }
+    }
+
+}
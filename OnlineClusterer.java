@@ -0,0 +1,200 @@
+import java.util.Arrays;
+
+/**
+ * Clusters paragraphs one at a time as they arrive, without rebuilding
+ * the term document matrix or re-running the batch clustering.
+ *
+ * The term dictionary, the document frequency of every term and the sum
+ * of the unit length paragraphs in every cluster stay in memory. A new
+ * paragraph goes through the same steps A to G as the corpus, counts
+ * towards the document frequencies, is weighted as the corpus was,
+ * scaled to unit length and joins the cluster whose centroid (normalised sum) is
+ * closest by cosine. Cosines come from dot products with the sums and
+ * their incrementally kept lengths, |S + x|^2 = |S|^2 + 2 S.x + |x|^2, so
+ * assigning a paragraph of m distinct terms costs k * m and updating its
+ * cluster m, whatever the vocabulary or the number of paragraphs seen.
+ *
+ * A paragraph joins the nearest cluster that has members. An empty
+ * cluster, e.g. a neuron competitive learning left unused, only takes a
+ * paragraph while no cluster has members yet, or when the paragraph's
+ * best cosine is below the threshold given, so that it starts a topic of
+ * its own.
+ *
+ * New words join the dictionary and count their document frequencies
+ * from the new paragraphs alone. When the batch vocabulary was pruned,
+ * the clusterer is given a fixed dictionary instead and leaves out every
+ * word outside it, as the pruner did for the corpus, rather than bring
+ * back the terms it dropped. Not thread safe.
+ */
+class OnlineClusterer
+{
+    private final TermDictionary dictionary;
+    private final Weighting weighting;
+    private final int k;
+    private final double threshold;
+
+    private final double[][] sums;          /* per cluster, grown as the vocabulary grows */
+    private final double[] squaredNorm;     /* |sums[j]|^2 */
+    private final int[] sizes;
+    private double similarity;
+
+    private final TermCounter counter = new TermCounter();
+    private final Tokenizer tokenizer;
+    private char[] text = new char[1024];
+
+    /**
+     * @param stopWords
+     * @param cache
+     * @param dictionary shared with the batch run
+     * @param grow whether new words join the dictionary; false leaves them out
+     * @param weighting shared with the batch run, keeps the document frequencies
+     * @param k number of clusters
+     * @param threshold cosine below which a paragraph starts an empty cluster, if one is left,
+     *                  rather than join the nearest; 0 for never once a cluster has members
+     */
+    public OnlineClusterer(StopWordFilter stopWords, StemCache cache, TermDictionary dictionary, boolean grow,
+                           Weighting weighting, int k, double threshold) {
+        if (k < 1) throw new IllegalArgumentException("cluster count must be positive: " + k);
+        this.dictionary = dictionary;
+        this.weighting = weighting;
+        this.k = k;
+        this.threshold = threshold;
+        this.sums = new double[k][0];
+        this.squaredNorm = new double[k];
+        this.sizes = new int[k];
+        Analyzer analyzer = new Analyzer(stopWords, cache);
+        this.tokenizer = new Tokenizer(new TokenSink() {
+            public void token(char[] buf, int off, int len) {
+                int n = analyzer.stem(buf, off, len);
+                if (n < 0) return;
+                int term = grow ? dictionary.add(analyzer.stem(), 0, n, buf, off, len)
+                        : dictionary.find(analyzer.stem(), 0, n);
+                if (term >= 0) counter.add(term);
+            }
+
+            public void endParagraph() {
+                // the whole text is one paragraph
+            }
+        });
+    }
+
+    /**
+     * Takes over the clusters of a batch run, whose document frequencies
+     * the weighting has already counted.
+     * @param tdm weighted rows numbered by this clusterer's dictionary
+     * @param assignment cluster of each row, e.g. Clusters.assignment
+     */
+    public void load(SparseMatrix tdm, int[] assignment) {
+        CosineKernel kernel = new CosineKernel(tdm);
+        for (int r = 0; r < tdm.rows(); r++) {
+            int j = assignment[r];
+            for (int i = tdm.rowStart(r); i < tdm.rowEnd(r); i++) {
+                grow(j, tdm.col(i));
+                sums[j][tdm.col(i)] += kernel.unit(i);
+            }
+            sizes[j]++;
+        }
+        for (int j = 0; j < k; j++) {
+            double sum = 0;
+            for (double v : sums[j]) sum += v * v;
+            squaredNorm[j] = sum;
+        }
+    }
+
+    /**
+     * Tokenizes, stems and clusters one paragraph.
+     * @param paragraph raw text, taken whole even if it contains ";"
+     * @return the cluster it joined, or -1 if no terms were left
+     */
+    public int add(CharSequence paragraph) {
+        int n = paragraph.length();
+        if (n > text.length) text = new char[Math.max(n, text.length * 2)];
+        for (int i = 0; i < n; i++) text[i] = paragraph.charAt(i);
+        counter.clear();
+        tokenizer.feed(text, 0, n);
+        tokenizer.finish();
+        return add(Document.of(counter));
+    }
+
+    /**
+     * Clusters a paragraph that has already been combined into terms.
+     * @param doc term ids from this clusterer's dictionary
+     * @return the cluster it joined, or -1 if it has no terms of any weight
+     */
+    public int add(Document doc) {
+        similarity = 0;
+        if (doc.size() == 0) return -1;
+        weighting.count(doc);
+        double[] w = weighting.weigh(doc);
+        double length = 0;
+        for (int t = 0; t < w.length; t++) length += w[t] * w[t];
+        if (length == 0) return -1;
+        double scale = 1 / Math.sqrt(length);
+
+        int best = -1, empty = -1;
+        double bestDot = 0, max = Double.NEGATIVE_INFINITY;
+        for (int j = 0; j < k; j++) {
+            if (sizes[j] == 0) {
+                if (empty < 0) empty = j;
+                continue;
+            }
+            double dot = 0;
+            double[] s = sums[j];
+            for (int t = 0; t < doc.size(); t++) {
+                int term = doc.terms[t];
+                if (term < s.length) dot += s[term] * w[t];
+            }
+            dot *= scale;
+            double cos = squaredNorm[j] > 0 ? dot / Math.sqrt(squaredNorm[j]) : 0;
+            if (cos > max) {
+                max = cos;
+                best = j;
+                bestDot = dot;
+            }
+        }
+        if (empty >= 0 && (best < 0 || max < threshold)) {
+            // nothing close enough: start a cluster of its own
+            best = empty;
+            bestDot = 0;
+            max = 1;
+        }
+
+        double[] s = grow(best, doc.terms);
+        for (int t = 0; t < doc.size(); t++) s[doc.terms[t]] += w[t] * scale;
+        squaredNorm[best] += 2 * bestDot + 1;
+        sizes[best]++;
+        similarity = max;
+        return best;
+    }
+
+    /**
+     * Returns the cosine of the last paragraph added with its cluster's
+     * centroid before it joined, 1 if it started the cluster.
+     */
+    public double similarity() { return similarity; }
+
+    /** Returns the number of paragraphs seen, the batch run's included. */
+    public int documents() { return weighting.documents(); }
+
+    /** Returns the number of paragraphs that contain a term. */
+    public int df(int term) { return weighting.df(term); }
+
+    /** Returns the number of paragraphs in a cluster. */
+    public int size(int cluster) { return sizes[cluster]; }
+
+    public TermDictionary dictionary() { return dictionary; }
+
+    private double[] grow(int j, int[] terms) {
+        int max = -1;
+        for (int term : terms) max = Math.max(max, term);
+        return grow(j, max);
+    }
+
+    /* makes cluster j's sum long enough to hold the term */
+    private double[] grow(int j, int term) {
+        if (term >= sums[j].length) {
+            sums[j] = Arrays.copyOf(sums[j], Math.max(term + 1, Math.max(dictionary.size(), sums[j].length * 2)));
+        }
+        return sums[j];
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Command line settings for the text mining pipeline.
+ *
+ * Usage: Stemmer [options] [paragraphs-file [stop-words-file]]
+ * The options are listed in USAGE, which Stemmer prints when they are
+ * wrong.
+ */
+class Options
+{
+    static final String USAGE = """
+            Usage: Stemmer [options] [paragraphs-file [stop-words-file]]
+              -cache n     words kept in the stem cache (default 65536)
+              -threads n   ingest threads (default: one per core)
+              -format f    csv (TDM.csv, the default), bin (TDM.bin, see TdmFile) or both
+              -compress c  none (the default) or gzip, which writes TDM.csv.gz
+              -index f     also write the inverted index of the paragraphs to file f;
+                           see InvertedIndex
+              -query f     with -index, rank the paragraphs against each line of file f
+                           (- for standard input) as a query; see Searcher
+              -hits n      paragraphs returned per query (default 10)
+              -score s     tfidf or bm25 (the default), how queries rank paragraphs
+              -top n       keep only the n most frequent terms (default 0: all)
+              -rank r      cf (total occurrences, the default) or df (paragraphs) for -top
+              -dedup j     drop paragraphs whose stems have a Jaccard similarity of at
+                           least j with an earlier paragraph's (default 0: keep all), listed
+                           in duplicates.csv; see Deduplicator
+              -min-df n    drop terms found in fewer than n paragraphs (default 1)
+              -max-df f    drop terms found in more than the fraction f of paragraphs
+                           (default 1); see VocabularyPruner
+              -weight w    raw (counts, the default), log, tfidf or bm25; see Weighting
+              -norm n      none (the default) or l2, unit length feature vectors
+              -cluster m   none (the default), competitive (p4.m) or kmeans (spherical
+                           k-means), which write clusters.csv
+              -k n         clusters, or neurons (also -neurons; default: one per paragraph,
+                           at most 256)
+              -iterations n  most k-means iterations (default 100)
+              -alpha a     learning rate (default 0.1)
+              -epochs n    training passes (default 1000)
+              -seed n      seed for the initial weights (default 0)
+              -batch n     paragraphs per aggregated update (default 0: after every
+                           paragraph, as p4.m)
+              -patience n  stop after n epochs without a change of cluster (default 0: never)
+              -online f    after the batch run, cluster each line of file f (- for
+                           standard input) as a new paragraph; see OnlineClusterer
+              -new-cluster c  with -online, a paragraph whose cosine with every cluster
+                           is below c starts an empty cluster, if any is left (default 0)
+              -verbosity n 0 quiet, 1 a line per stage on stderr (default), 2 also print
+                           every feature vector; see Progress
+            """;
+
+    String corpus = "paragraphs.txt";
+    String stopWords = "stop_words.txt";
+    int cacheSize = StemCache.DEFAULT_CAPACITY;
+    int threads = Runtime.getRuntime().availableProcessors();
+    boolean csv = true;
+    boolean binary = false;
+    boolean gzip = false;
+    String index = null;
+    String query = null;
+    int hits = 10;
+    String score = "bm25";
+    int verbosity = Progress.STAGES;
+    int top = 0;
+    int rank = VocabularyPruner.CORPUS;
+    int minDf = 1;
+    double maxDf = 1;
+    double dedup = 0;
+    String weight = "raw";
+    boolean l2 = false;
+    String cluster = "none";
+    int neurons = 0;
+    double alpha = CompetitiveLearning.DEFAULT_ALPHA;
+    int epochs = CompetitiveLearning.DEFAULT_EPOCHS;
+    int iterations = SphericalKMeans.DEFAULT_ITERATIONS;
+    long seed = 0;
+    int batch = 0;
+    int patience = 0;
+    String online = null;
+    double newCluster = 0;
+
+    /**
+     * Parses the arguments given to main.
+     * @param args
+     * @return the settings, with defaults for anything not given
+     * @throws IllegalArgumentException for an unknown or malformed option
+     */
+    public static Options parse(String[] args) {
+        Options o = new Options();
+        int positional = 0;
+        for (int a = 0; a < args.length; a++) {
+            String arg = args[a];
+            if (!arg.startsWith("-")) {
+                if (positional == 0) o.corpus = arg;
+                else if (positional == 1) o.stopWords = arg;
+                else throw new IllegalArgumentException("unexpected argument: " + arg);
+                positional++;
+                continue;
+            }
+            if (a + 1 == args.length) throw new IllegalArgumentException("missing value for " + arg);
+            String value = args[++a];
+            switch (arg) {
+                case "-cache": o.cacheSize = intValue(arg, value); break;
+                case "-threads": o.threads = intValue(arg, value); break;
+                case "-verbosity": o.verbosity = intValue(arg, value); break;
+                case "-top": o.top = intValue(arg, value); break;
+                case "-rank":
+                    if (!value.equals("cf") && !value.equals("df")) {
+                        throw new IllegalArgumentException("-rank expects cf or df, got " + value);
+                    }
+                    o.rank = value.equals("cf") ? VocabularyPruner.CORPUS : VocabularyPruner.DOCUMENT;
+                    break;
+                case "-min-df": o.minDf = intValue(arg, value); break;
+                case "-max-df": o.maxDf = doubleValue(arg, value); break;
+                case "-dedup":
+                    o.dedup = doubleValue(arg, value);
+                    if (!(o.dedup >= 0 && o.dedup <= 1)) {
+                        throw new IllegalArgumentException("-dedup expects a similarity from 0 to 1, got " + value);
+                    }
+                    break;
+                case "-weight":
+                    Weighting.scheme(value);
+                    o.weight = value;
+                    break;
+                case "-norm":
+                    if (!value.equals("none") && !value.equals("l2")) {
+                        throw new IllegalArgumentException("-norm expects none or l2, got " + value);
+                    }
+                    o.l2 = value.equals("l2");
+                    break;
+                case "-cluster":
+                    if (!value.equals("none") && !value.equals("competitive") && !value.equals("kmeans")) {
+                        throw new IllegalArgumentException("-cluster expects none, competitive or kmeans, got " + value);
+                    }
+                    o.cluster = value;
+                    break;
+                case "-k":
+                case "-neurons": o.neurons = intValue(arg, value); break;
+                case "-iterations": o.iterations = intValue(arg, value); break;
+                case "-alpha": o.alpha = doubleValue(arg, value); break;
+                case "-epochs": o.epochs = intValue(arg, value); break;
+                case "-seed": o.seed = longValue(arg, value); break;
+                case "-batch": o.batch = intValue(arg, value); break;
+                case "-patience": o.patience = intValue(arg, value); break;
+                case "-online": o.online = value; break;
+                case "-new-cluster":
+                    o.newCluster = doubleValue(arg, value);
+                    if (!(o.newCluster >= 0 && o.newCluster <= 1)) {
+                        throw new IllegalArgumentException("-new-cluster expects a cosine from 0 to 1, got " + value);
+                    }
+                    break;
+                case "-index": o.index = value; break;
+                case "-query": o.query = value; break;
+                case "-hits": o.hits = intValue(arg, value); break;
+                case "-score":
+                    if (!value.equals("tfidf") && !value.equals("bm25")) {
+                        throw new IllegalArgumentException("-score expects tfidf or bm25, got " + value);
+                    }
+                    o.score = value;
+                    break;
+                case "-format":
+                    if (!value.equals("csv") && !value.equals("bin") && !value.equals("both")) {
+                        throw new IllegalArgumentException("-format expects csv, bin or both, got " + value);
+                    }
+                    o.csv = !value.equals("bin");
+                    o.binary = !value.equals("csv");
+                    break;
+                case "-compress":
+                    if (!value.equals("none") && !value.equals("gzip")) {
+                        throw new IllegalArgumentException("-compress expects none or gzip, got " + value);
+                    }
+                    o.gzip = value.equals("gzip");
+                    break;
+                default: throw new IllegalArgumentException("unknown option: " + arg);
+            }
+        }
+        if (o.query != null && o.index == null) throw new IllegalArgumentException("-query needs -index");
+        return o;
+    }
+
+    private static int intValue(String arg, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(arg + " expects a number, got " + value);
+        }
+    }
+
+    private static long longValue(String arg, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(arg + " expects a number, got " + value);
+        }
+    }
+
+    private static double doubleValue(String arg, String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(arg + " expects a number, got " + value);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs steps A to G (tokenize, clean, remove stop words, stem, combine)
+ * over a corpus on a ForkJoinPool.
+ *
+ * The file is cut into chunks at ";" paragraph boundaries and every chunk
+ * is read, tokenized, filtered, stemmed and combined into Documents by its
+ * own task. The stop word filter is read only and the stem cache takes no
+ * lock on lookups, so the tasks share both. Each task numbers terms in a
+ * TermDictionary of its own; on the calling thread the chunks are merged
+ * into the corpus dictionary and their documents handed to the sink in
+ * corpus order, which keeps term ids and output identical to a single
+ * threaded run. Only a few chunks are in flight at once, so memory does
+ * not grow with the number of paragraphs.
+ */
+class ParallelIngest
+{
+    /* chunks per thread, so that uneven paragraphs still balance out */
+    private static final int CHUNKS_PER_THREAD = 4;
+    /* upper bound on the bytes in one chunk for large corpora */
+    private static final long CHUNK_BYTES = 8L << 20;
+
+    private final CorpusReader reader;
+    private final StopWordFilter stopWords;
+    private final StemCache cache;
+    private final int threads;
+    private final Deduplicator duplicates;
+
+    /**
+     * @param pathName corpus file
+     * @param stopWords
+     * @param cache
+     * @param threads worker threads, 1 runs everything on the calling thread
+     */
+    public ParallelIngest(String pathName, StopWordFilter stopWords, StemCache cache, int threads) {
+        this(pathName, stopWords, cache, threads, null);
+    }
+
+    /**
+     * As above, also signing every paragraph for a Deduplicator on the
+     * worker threads
+     * @param pathName corpus file
+     * @param stopWords
+     * @param cache
+     * @param threads worker threads, 1 runs everything on the calling thread
+     * @param duplicates signs each Document before it is handed on; may be null
+     */
+    public ParallelIngest(String pathName, StopWordFilter stopWords, StemCache cache, int threads,
+                          Deduplicator duplicates) {
+        if (threads < 1) throw new IllegalArgumentException("thread count must be positive: " + threads);
+        this.reader = new CorpusReader(pathName);
+        this.stopWords = stopWords;
+        this.cache = cache;
+        this.threads = threads;
+        this.duplicates = duplicates;
+    }
+
+    /**
+     * Hands every paragraph of the corpus to sink as a Document, in order.
+     * @param dictionary the corpus dictionary the documents' term ids refer to
+     * @param sink
+     * @throws IOException if the corpus cannot be read
+     */
+    public void run(TermDictionary dictionary, DocumentSink sink) throws IOException {
+        if (threads == 1) {
+            // paragraphs go straight to the sink as they are found
+            try {
+                ingest(0, Long.MAX_VALUE, dictionary, sink);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return;
+        }
+
+        int parts = (int) Math.max(threads * CHUNKS_PER_THREAD, reader.size() / CHUNK_BYTES);
+        long[] bounds = reader.split(parts);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ArrayDeque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<ForkJoinTask<Chunk>>();
+        try {
+            for (int c = 0; c + 1 < bounds.length; c++) {
+                long from = bounds[c], to = bounds[c + 1];
+                inFlight.add(pool.submit(() -> {
+                    Chunk chunk = new Chunk();
+                    ingest(from, to, chunk.dictionary, chunk.docs::add);
+                    return chunk;
+                }));
+                if (inFlight.size() == threads * 2) deliver(inFlight.poll().join(), dictionary, sink);
+            }
+            while (!inFlight.isEmpty()) deliver(inFlight.poll().join(), dictionary, sink);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /* the documents of one chunk, numbered by the chunk's own dictionary */
+    private static final class Chunk
+    {
+        final TermDictionary dictionary = new TermDictionary();
+        final ArrayList<Document> docs = new ArrayList<Document>();
+    }
+
+    private static void deliver(Chunk chunk, TermDictionary dictionary, DocumentSink sink) {
+        int[] map = dictionary.merge(chunk.dictionary);
+        for (Document doc : chunk.docs) {
+            doc.remap(map);
+            sink.document(doc);
+        }
+    }
+
+    private void ingest(long from, long to, TermDictionary dictionary, DocumentSink out) {
+        try {
+            reader.read(new TokenSink() {
+                TermCounter counter = new TermCounter();
+                Analyzer analyzer = new Analyzer(stopWords, cache);
+
+                public void token(char[] buf, int off, int len) {
+                    int n = analyzer.stem(buf, off, len);
+                    if (n >= 0) counter.add(dictionary.add(analyzer.stem(), 0, n, buf, off, len));
+                }
+
+                public void endParagraph() {
+                    Document doc = Document.of(counter);
+                    if (duplicates != null) duplicates.sign(doc, dictionary);
+                    out.document(doc);
+                    counter.clear();
+                }
+            }, from, to);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
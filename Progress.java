@@ -0,0 +1,66 @@
+import java.io.PrintStream;
+
+/**
+ * Reports what the pipeline is doing, in place of dumping every cell of
+ * the matrix to the console.
+ *
+ * Each finished stage is one line of key=value pairs on stderr, e.g.
+ *   ingest paragraphs=16 terms=711 cells=1046 cache.hits=713 cache.misses=834 threads=1 ms=149
+ * so stdout stays free and the lines are easy to grep or parse. At DEBUG
+ * the feature vectors are also printed to stdout as before.
+ */
+class Progress
+{
+    /** nothing but errors */
+    static final int QUIET = 0;
+    /** one line per stage (the default) */
+    static final int STAGES = 1;
+    /** stages and every feature vector */
+    static final int DEBUG = 2;
+
+    private final int level;
+    private final PrintStream out;
+    private long start = System.nanoTime();
+
+    /**
+     * @param level QUIET, STAGES or DEBUG
+     * @param out where stage lines go
+     */
+    public Progress(int level, PrintStream out) {
+        this.level = level;
+        this.out = out;
+    }
+
+    /** Returns whether the feature vectors should be dumped. */
+    public boolean debug() { return level >= DEBUG; }
+
+    /** Starts timing the next stage. */
+    public void begin() {
+        start = System.nanoTime();
+    }
+
+    /**
+     * Reports a finished stage with the time since begin().
+     * @param stage
+     * @param keyValues alternating keys and values
+     */
+    public void done(String stage, Object... keyValues) {
+        report(stage, System.nanoTime() - start, keyValues);
+    }
+
+    /**
+     * Reports a stage timed by the caller, e.g. one that ran inside another.
+     * @param stage
+     * @param nanos time the stage took
+     * @param keyValues alternating keys and values
+     */
+    public void report(String stage, long nanos, Object... keyValues) {
+        if (level < STAGES) return;
+        StringBuilder line = new StringBuilder(stage);
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            line.append(' ').append(keyValues[i]).append('=').append(keyValues[i + 1]);
+        }
+        line.append(" ms=").append(nanos / 1_000_000);
+        out.println(line);
+    }
+}
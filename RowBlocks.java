@@ -0,0 +1,62 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs a loop over matrix rows in blocks on a ForkJoinPool, the parallel
+ * step shared by CompetitiveLearning's winners and SphericalKMeans'
+ * assignment.
+ *
+ * A range is cut into about four blocks per thread so that uneven rows
+ * still balance, but never into blocks smaller than MIN_BLOCK rows. With
+ * one thread, or a range no larger than one block, the rows run on the
+ * calling thread and no pool is involved. Blocks must only write their
+ * own rows.
+ */
+class RowBlocks implements AutoCloseable
+{
+    /* fewest rows worth handing to another thread */
+    private static final int MIN_BLOCK = 64;
+
+    /** Body of the loop, called once per block. */
+    interface Body
+    {
+        void rows(int from, int to);
+    }
+
+    private final int threads;
+    private final ForkJoinPool pool;
+
+    /** @param threads 1 runs every block on the calling thread */
+    public RowBlocks(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("thread count must be positive: " + threads);
+        this.threads = threads;
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    /**
+     * Runs body over rows from..to and returns once every block is done.
+     * @param from
+     * @param to
+     * @param body
+     */
+    public void run(int from, int to, Body body) {
+        int block = Math.max(MIN_BLOCK, (to - from + threads * 4 - 1) / (threads * 4));
+        if (pool == null || to - from <= block) {
+            body.rows(from, to);
+            return;
+        }
+        ArrayList<ForkJoinTask<?>> blocks = new ArrayList<ForkJoinTask<?>>();
+        for (int lo = from; lo < to; lo += block) {
+            int start = lo, end = Math.min(lo + block, to);
+            blocks.add(pool.submit(() -> body.rows(start, end)));
+        }
+        for (ForkJoinTask<?> task : blocks) task.join();
+    }
+
+    /** Stops the pool's threads. */
+    @Override
+    public void close() {
+        if (pool != null) pool.shutdownNow();
+    }
+}
@@ -0,0 +1,172 @@
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Check for Searcher and the inverted index: builds the index of a corpus,
+ * compares every posting list with the matching column of the term
+ * document matrix, then runs random queries under each weighting and
+ * compares the WAND top K with scoring every paragraph.
+ *
+ * Queries take a few terms of a random paragraph, sometimes with a random
+ * term of the vocabulary added, and are also run as text built from the
+ * terms' words, which must find the same paragraphs. Brute force scores
+ * come from the transposed matrix, summed in query order like Searcher
+ * does, so the scores must agree exactly.
+ *
+ * Usage: java SearchCheck [paragraphs-file [stop-words-file [queries]]]
+ * (defaults to paragraphs.txt, stop_words.txt and 200)
+ * Exits with status 1 if a posting list or a result differs.
+ */
+class SearchCheck
+{
+    private static final int[] HITS = { 1, 10 };
+
+    public static void main(String[] args) throws Exception {
+        String corpus = args.length > 0 ? args[0] : "paragraphs.txt";
+        String stopWordsFile = args.length > 1 ? args[1] : "stop_words.txt";
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        StopWordFilter stopWords = StopWordFilter.load(stopWordsFile);
+        StemCache cache = new StemCache(StemCache.DEFAULT_CAPACITY);
+        TermDictionary dictionary = new TermDictionary();
+        IndexBuilder builder = new IndexBuilder();
+        SparseMatrix tdm = Stemmer.prepFeatures(corpus, stopWords, cache,
+                Math.max(2, Runtime.getRuntime().availableProcessors()), dictionary,
+                new Weighting(Weighting.RAW, false), new VocabularyPruner(0, VocabularyPruner.CORPUS, 1, 1), null,
+                builder);
+        File file = File.createTempFile("search-check", ".idx");
+        file.deleteOnExit();
+        builder.write(file.getPath(), dictionary);
+        InvertedIndex index = InvertedIndex.load(file.getPath());
+        SparseMatrix columns = tdm.transpose();
+
+        int failures = postings(index, dictionary, tdm, columns);
+        System.out.println(index.terms() + " posting lists, " + index.postings() + " postings, " + failures
+                + " differ from the matrix");
+
+        for (int scheme = Weighting.RAW; scheme <= Weighting.BM25; scheme++) {
+            Searcher searcher = new Searcher(index, stopWords, cache, scheme);
+            Random random = new Random(42);
+            TermCounter counter = new TermCounter();
+            long scored = 0, total = 0;
+            int wrong = 0;
+            for (int q = 0; q < queries; q++) {
+                Document query = query(tdm, random, counter);
+                String text = text(query, dictionary);
+                for (int k : HITS) {
+                    Searcher.Hits expected = bruteForce(index, columns, query, scheme, k);
+                    Searcher.Hits hits = searcher.search(query, k);
+                    scored += searcher.scored();
+                    total += tdm.rows();
+                    if (!same(expected, hits)) {
+                        if (wrong < 10) System.out.println(name(scheme) + ": query " + text + ", top " + k + ": "
+                                + describe(hits) + " but scoring every paragraph gives " + describe(expected));
+                        wrong++;
+                    } else if (!same(hits, searcher.search(text, k))) {
+                        if (wrong < 10) System.out.println(name(scheme) + ": text query " + text + ", top " + k
+                                + " differs from its terms");
+                        wrong++;
+                    }
+                }
+            }
+            System.out.println(name(scheme) + ": " + queries * HITS.length + " searches, " + wrong + " differ, "
+                    + String.format("%.1f", 100.0 * scored / Math.max(total, 1)) + "% of paragraphs scored");
+            failures += wrong;
+        }
+        if (failures > 0) System.exit(1);
+    }
+
+    /* compares every posting list, df, max tf and paragraph length with the matrix */
+    private static int postings(InvertedIndex index, TermDictionary dictionary, SparseMatrix tdm,
+                                SparseMatrix columns) {
+        int failures = 0;
+        for (int r = 0; r < tdm.rows(); r++) {
+            int length = 0;
+            for (int i = tdm.rowStart(r); i < tdm.rowEnd(r); i++) length += (int) tdm.value(i);
+            if (index.length(r) != length) {
+                System.out.println("paragraph " + r + ": length " + index.length(r) + ", the matrix has " + length);
+                failures++;
+            }
+        }
+        for (int term = 0; term < columns.rows(); term++) {
+            InvertedIndex.Postings list = index.postings(term);
+            int i = columns.rowStart(term), end = columns.rowEnd(term), maxTf = 0;
+            boolean same = index.find(dictionary.term(term)) == term && list.df() == end - i;
+            for (; same && i < end; i++) {
+                int tf = (int) columns.value(i);
+                maxTf = Math.max(maxTf, tf);
+                same = list.next() == columns.col(i) && list.tf() == tf;
+            }
+            same = same && list.next() == InvertedIndex.Postings.END && index.maxTf(term) == maxTf;
+            if (!same) {
+                if (failures < 10) System.out.println("term " + dictionary.term(term) + ": posting list differs");
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    /* one to four terms of a random paragraph, each once or twice, sometimes with a random term */
+    private static Document query(SparseMatrix tdm, Random random, TermCounter counter) {
+        counter.clear();
+        int r;
+        do {
+            r = random.nextInt(tdm.rows());
+        } while (tdm.rowEnd(r) == tdm.rowStart(r));
+        int cells = tdm.rowEnd(r) - tdm.rowStart(r);
+        for (int n = 1 + random.nextInt(4); n > 0; n--) {
+            counter.add(tdm.col(tdm.rowStart(r) + random.nextInt(cells)), 1 + random.nextInt(2));
+        }
+        if (random.nextInt(3) == 0) counter.add(random.nextInt(tdm.columns()));
+        return Document.of(counter);
+    }
+
+    /* the query's words in its term order, each repeated its count, so it analyzes back to the same query */
+    private static String text(Document query, TermDictionary dictionary) {
+        StringBuilder text = new StringBuilder();
+        for (int t = 0; t < query.size(); t++) {
+            for (int c = 0; c < query.counts[t]; c++) text.append(dictionary.word(query.terms[t])).append(' ');
+        }
+        return text.toString().trim();
+    }
+
+    /* scores every paragraph from the columns of the matrix and keeps the best k above 0 */
+    private static Searcher.Hits bruteForce(InvertedIndex index, SparseMatrix columns, Document query, int scheme,
+                                            int k) {
+        int documents = columns.columns();
+        double[] score = new double[documents];
+        for (int t = 0; t < query.size(); t++) {
+            int term = query.terms[t];
+            int from = columns.rowStart(term), to = columns.rowEnd(term);
+            for (int i = from; i < to; i++) {
+                int doc = columns.col(i);
+                score[doc] += query.counts[t] * Weighting.weight(scheme, columns.value(i), to - from, documents,
+                        index.length(doc), index.averageLength());
+            }
+        }
+        Integer[] order = new Integer[documents];
+        int n = 0;
+        for (int doc = 0; doc < documents; doc++) if (score[doc] > 0) order[n++] = doc;
+        Arrays.sort(order, 0, n, (a, b) -> score[a] != score[b] ? Double.compare(score[b], score[a])
+                : Integer.compare(a, b));
+        Searcher.Hits hits = new Searcher.Hits(Math.min(n, k));
+        for (int i = 0; i < hits.size(); i++) {
+            hits.docs[i] = order[i];
+            hits.scores[i] = score[order[i]];
+        }
+        return hits;
+    }
+
+    private static boolean same(Searcher.Hits a, Searcher.Hits b) {
+        return Arrays.equals(a.docs, b.docs) && Arrays.equals(a.scores, b.scores);
+    }
+
+    private static String describe(Searcher.Hits hits) {
+        StringBuilder s = new StringBuilder("[");
+        for (int i = 0; i < hits.size(); i++) s.append(i > 0 ? ", " : "").append(hits.docs[i]).append('=')
+                .append(hits.scores[i]);
+        return s.append(']').toString();
+    }
+
+    private static String name(int scheme) { return new Weighting(scheme, false).name(); }
+}
@@ -0,0 +1,245 @@
+import java.util.Arrays;
+
+/**
+ * Ranked free-text queries over an InvertedIndex: the paragraphs that
+ * best match a query, best first.
+ *
+ * A query goes through the same steps A to F as the corpus, so it is
+ * tokenized, cleaned, filtered and stemmed exactly as the paragraphs were,
+ * and its stems are looked up in the index. A paragraph scores the sum,
+ * over the query's terms, of the term's weight in the paragraph (TF-IDF
+ * or BM25, see Weighting) times the times the term is in the query.
+ *
+ * Posting lists are walked document at a time with WAND. Every term has
+ * an upper bound on what it can add to any paragraph's score, from its
+ * largest tf. Only when the bounds of the lists positioned at or before
+ * a paragraph add up to more than the K-th best score so far can that
+ * paragraph enter the top K; otherwise the lists jump past it with their
+ * skip entries, and most postings of common terms are never decoded.
+ * Ties go to the lower paragraph number, and the result is the same as
+ * scoring every paragraph. Paragraphs that score 0 are not returned.
+ *
+ * Not thread safe; use one Searcher per thread over a shared index.
+ */
+class Searcher
+{
+    /* keeps rounding in the sums of bounds from hiding a paragraph */
+    private static final double SLACK = 1 + 1e-9;
+
+    private final InvertedIndex index;
+    private final int scheme;
+    private long scored;
+
+    private final TermCounter counter = new TermCounter();
+    private final Tokenizer tokenizer;
+    private char[] text = new char[256];
+
+    /**
+     * @param index
+     * @param stopWords the ones the corpus was filtered with
+     * @param cache
+     * @param scheme Weighting.TFIDF or BM25, or RAW or LOG
+     */
+    public Searcher(InvertedIndex index, StopWordFilter stopWords, StemCache cache, int scheme) {
+        if (scheme < Weighting.RAW || scheme > Weighting.BM25) {
+            throw new IllegalArgumentException("unknown weighting: " + scheme);
+        }
+        this.index = index;
+        this.scheme = scheme;
+        Analyzer analyzer = new Analyzer(stopWords, cache);
+        this.tokenizer = new Tokenizer(new TokenSink() {
+            public void token(char[] buf, int off, int len) {
+                int n = analyzer.stem(buf, off, len);
+                if (n < 0) return;
+                int term = index.find(new String(analyzer.stem(), 0, n));
+                if (term >= 0) counter.add(term);
+            }
+
+            public void endParagraph() {
+                // the whole text is one query
+            }
+        });
+    }
+
+    /** Returns the number of paragraphs fully scored by the last search, the rest were skipped. */
+    public long scored() { return scored; }
+
+    /**
+     * Finds the paragraphs that best match a query.
+     * @param query raw text, taken whole even if it contains ";"
+     * @param k most paragraphs to return
+     * @return at most k paragraphs, best first
+     */
+    public Hits search(CharSequence query, int k) {
+        int n = query.length();
+        if (n > text.length) text = new char[Math.max(n, text.length * 2)];
+        for (int i = 0; i < n; i++) text[i] = query.charAt(i);
+        counter.clear();
+        tokenizer.feed(text, 0, n);
+        tokenizer.finish();
+        return search(Document.of(counter), k);
+    }
+
+    /**
+     * Finds the paragraphs that best match a query that has already been
+     * combined into terms.
+     * @param query index term ids and the times each is in the query
+     * @param k most paragraphs to return
+     * @return at most k paragraphs, best first
+     */
+    public Hits search(Document query, int k) {
+        if (k < 1) throw new IllegalArgumentException("hit count must be positive: " + k);
+        scored = 0;
+        int m = query.size();
+        InvertedIndex.Postings[] lists = new InvertedIndex.Postings[m];
+        double[] bound = new double[m];
+        int[] sorted = new int[m];      /* list indexes by current paragraph */
+        int live = 0;
+        for (int t = 0; t < m; t++) {
+            int term = query.terms[t];
+            lists[t] = index.postings(term);
+            bound[t] = query.counts[t] * upperBound(term) * SLACK;
+            if (lists[t].next() != InvertedIndex.Postings.END) sorted[live++] = t;
+        }
+
+        // min-heap of the best k so far, the weakest at the root
+        int[] docs = new int[k];
+        double[] scores = new double[k];
+        int size = 0;
+        double threshold = 0;
+        while (live > 0) {
+            sortByDoc(lists, sorted, live);
+            // pivot: the first list at which the bounds so far could beat the threshold
+            double sum = 0;
+            int pivot = -1;
+            for (int i = 0; i < live; i++) {
+                sum += bound[sorted[i]];
+                if (size < k ? sum > 0 : sum > threshold) {
+                    pivot = i;
+                    break;
+                }
+            }
+            if (pivot < 0) break;
+            int doc = lists[sorted[pivot]].doc();
+            if (lists[sorted[0]].doc() == doc) {
+                double score = score(query, lists, doc);
+                scored++;
+                if (size < k) {
+                    docs[size] = doc;
+                    scores[size] = score;
+                    up(docs, scores, size++);
+                } else if (score > scores[0]) {
+                    docs[0] = doc;
+                    scores[0] = score;
+                    down(docs, scores, size);
+                }
+                if (size == k) threshold = scores[0];
+                for (int i = 0; i < live && lists[sorted[i]].doc() == doc; i++) lists[sorted[i]].next();
+            } else {
+                // no paragraph before doc can make the top k: move the lists before the pivot up to it
+                for (int i = 0; i < pivot; i++) lists[sorted[i]].advance(doc);
+            }
+            int kept = 0;
+            for (int i = 0; i < live; i++) {
+                if (lists[sorted[i]].doc() != InvertedIndex.Postings.END) sorted[kept++] = sorted[i];
+            }
+            live = kept;
+        }
+
+        // best first, ties to the lower paragraph
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a])
+                : Integer.compare(docs[a], docs[b]));
+        Hits hits = new Hits(size);
+        for (int i = 0; i < size; i++) {
+            hits.docs[i] = docs[order[i]];
+            hits.scores[i] = scores[order[i]];
+        }
+        return hits;
+    }
+
+    /**
+     * The result of a search.
+     */
+    static final class Hits
+    {
+        /** paragraphs, numbered from 0 like the rows of the matrix */
+        final int[] docs;
+        final double[] scores;
+
+        Hits(int n) {
+            docs = new int[n];
+            scores = new double[n];
+        }
+
+        int size() { return docs.length; }
+    }
+
+    /* the most one occurrence count of the term can add to a score */
+    private double upperBound(int term) {
+        int tf = index.maxTf(term);
+        // BM25 only grows as the paragraph gets shorter, so length 0 bounds every paragraph
+        double length = scheme == Weighting.BM25 ? 0 : index.averageLength();
+        return weight(tf, term, length);
+    }
+
+    /* the score of doc, summed in query order so that it does not depend on the walk */
+    private double score(Document query, InvertedIndex.Postings[] lists, int doc) {
+        double length = index.length(doc), score = 0;
+        for (int t = 0; t < lists.length; t++) {
+            if (lists[t].doc() == doc) score += query.counts[t] * weight(lists[t].tf(), query.terms[t], length);
+        }
+        return score;
+    }
+
+    private double weight(int tf, int term, double length) {
+        return Weighting.weight(scheme, tf, index.df(term), index.documents(), length, index.averageLength());
+    }
+
+    /* insertion sort: the lists are few and mostly still in order */
+    private static void sortByDoc(InvertedIndex.Postings[] lists, int[] sorted, int n) {
+        for (int i = 1; i < n; i++) {
+            int t = sorted[i], doc = lists[t].doc();
+            int j = i - 1;
+            while (j >= 0 && lists[sorted[j]].doc() > doc) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = t;
+        }
+    }
+
+    /* whether hit a ranks below hit b: a lower score, or as high and a later paragraph */
+    private static boolean below(int[] docs, double[] scores, int a, int b) {
+        return scores[a] != scores[b] ? scores[a] < scores[b] : docs[a] > docs[b];
+    }
+
+    private static void up(int[] docs, double[] scores, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!below(docs, scores, i, parent)) break;
+            swap(docs, scores, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void down(int[] docs, double[] scores, int size) {
+        int i = 0;
+        for (int child = 1; child < size; child = 2 * i + 1) {
+            if (child + 1 < size && below(docs, scores, child + 1, child)) child++;
+            if (!below(docs, scores, child, i)) break;
+            swap(docs, scores, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] docs, double[] scores, int a, int b) {
+        int d = docs[a];
+        docs[a] = docs[b];
+        docs[b] = d;
+        double s = scores[a];
+        scores[a] = scores[b];
+        scores[b] = s;
+    }
+}
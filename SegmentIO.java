@@ -0,0 +1,77 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reading and writing the little-endian binary files of the pipeline,
+ * TDM.bin (TdmFile) and the index segment (InvertedIndex): sections are
+ * written sequentially through one direct buffer and read back through
+ * read-only mappings.
+ */
+final class SegmentIO
+{
+    private SegmentIO() { }
+
+    /** Rounds a file offset up to the next 8 byte boundary. */
+    static long align(long offset) { return (offset + 7) & ~7L; }
+
+    /**
+     * Maps part of a file read-only, little-endian.
+     * @param channel
+     * @param offset
+     * @param length at most 2 GB
+     */
+    static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+        MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        return b;
+    }
+
+    /** Sequential little-endian writer through one direct buffer. */
+    static final class Writer
+    {
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private long pos;
+
+        Writer(FileChannel channel) { this.channel = channel; }
+
+        /** Returns the number of bytes written so far. */
+        long position() { return pos; }
+
+        void putInt(int v) throws IOException { room(4); buf.putInt(v); pos += 4; }
+
+        void putLong(long v) throws IOException { room(8); buf.putLong(v); pos += 8; }
+
+        void putFloat(float v) throws IOException { room(4); buf.putFloat(v); pos += 4; }
+
+        void put(byte[] b) throws IOException { put(b, 0, b.length); }
+
+        void put(byte[] b, int off, int len) throws IOException {
+            for (int end = off + len; off < end; ) {
+                room(1);
+                int n = Math.min(buf.remaining(), end - off);
+                buf.put(b, off, n);
+                off += n;
+                pos += n;
+            }
+        }
+
+        /** Writes zeros up to a file offset. */
+        void padTo(long offset) throws IOException {
+            while (pos < offset) { room(1); buf.put((byte) 0); pos++; }
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) channel.write(buf);
+            buf.clear();
+        }
+
+        private void room(int n) throws IOException {
+            if (buf.remaining() < n) flush();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+import java.util.Arrays;
+
+/**
+ * Term document matrix in compressed sparse row (CSR) form: one row per
+ * paragraph, one column per term id, and only the nonzero cells stored.
+ *
+ * Row r holds the cells rowStart(r) up to rowEnd(r); cell i is at column
+ * col(i) with weight value(i), columns ascending within a row. Rows are
+ * appended one at a time as paragraphs arrive. transpose() gives the
+ * compressed sparse column (CSC) form, i.e. the same cells grouped by
+ * term, for walking a column.
+ */
+class SparseMatrix
+{
+    private int[] rowStart = new int[17];
+    private int rows;
+    private int[] cols = new int[256];
+    private float[] values = new float[256];
+    private int nnz;
+    private int columns;
+    private SparseMatrix transposed;    /* cached until the next append */
+
+    /**
+     * Appends a row.
+     * @param c column of each cell, in any order and without repeats
+     * @param v weight of each cell
+     * @param n number of cells
+     * @return the index of the new row
+     */
+    public int appendRow(int[] c, float[] v, int n) {
+        ensureCapacity(n);
+        int base = nnz;
+        for (int i = 0; i < n; i++) {
+            cols[base + i] = c[i];
+            values[base + i] = v[i];
+            if (c[i] >= columns) columns = c[i] + 1;
+        }
+        nnz += n;
+        sortRow(base, nnz);
+        rowStart[++rows] = nnz;
+        transposed = null;
+        return rows - 1;
+    }
+
+    /** Appends a row of whole number weights; see appendRow(int[], float[], int). */
+    public int appendRow(int[] c, int[] v, int n) {
+        ensureCapacity(n);
+        int base = nnz;
+        for (int i = 0; i < n; i++) {
+            cols[base + i] = c[i];
+            values[base + i] = v[i];
+            if (c[i] >= columns) columns = c[i] + 1;
+        }
+        nnz += n;
+        sortRow(base, nnz);
+        rowStart[++rows] = nnz;
+        transposed = null;
+        return rows - 1;
+    }
+
+    /** Appends the terms and counts of a document as a row. */
+    public int appendRow(Document doc) {
+        return appendRow(doc.terms, doc.counts, doc.size());
+    }
+
+    public int rows() { return rows; }
+
+    /** Returns the number of columns: one more than the highest column used, or as set. */
+    public int columns() { return columns; }
+
+    /** Widens the matrix to at least n columns, e.g. to the dictionary size. */
+    public void setColumns(int n) {
+        if (n > columns) {
+            columns = n;
+            transposed = null;
+        }
+    }
+
+    /** Returns the number of stored cells. */
+    public int nnz() { return nnz; }
+
+    public int rowStart(int r) { return rowStart[r]; }
+
+    public int rowEnd(int r) { return rowStart[r + 1]; }
+
+    public int col(int i) { return cols[i]; }
+
+    public float value(int i) { return values[i]; }
+
+    /** Replaces the weight of cell i, e.g. to turn counts into weights. */
+    public void setValue(int i, float v) {
+        values[i] = v;
+        transposed = null;
+    }
+
+    /** Returns the weight at row r, column c, 0 if the cell is not stored. */
+    public float get(int r, int c) {
+        int i = Arrays.binarySearch(cols, rowStart[r], rowStart[r + 1], c);
+        return i >= 0 ? values[i] : 0f;
+    }
+
+    /**
+     * Returns the transpose, whose rows are this matrix's columns. Built
+     * with a counting sort in O(rows + columns + nnz) and kept until the
+     * next append.
+     */
+    public SparseMatrix transpose() {
+        if (transposed != null) return transposed;
+        SparseMatrix t = new SparseMatrix();
+        t.rows = columns;
+        t.columns = rows;
+        t.nnz = nnz;
+        t.rowStart = new int[columns + 1];
+        t.cols = new int[Math.max(nnz, 1)];
+        t.values = new float[Math.max(nnz, 1)];
+        for (int i = 0; i < nnz; i++) t.rowStart[cols[i] + 1]++;
+        for (int c = 0; c < columns; c++) t.rowStart[c + 1] += t.rowStart[c];
+        int[] next = Arrays.copyOf(t.rowStart, columns);
+        // rows are visited in order, so each column's cells come out sorted by row
+        for (int r = 0; r < rows; r++) {
+            for (int i = rowStart[r]; i < rowStart[r + 1]; i++) {
+                int slot = next[cols[i]]++;
+                t.cols[slot] = r;
+                t.values[slot] = values[i];
+            }
+        }
+        transposed = t;
+        return t;
+    }
+
+    private void ensureCapacity(int n) {
+        if (rows + 2 > rowStart.length) rowStart = Arrays.copyOf(rowStart, rowStart.length * 2);
+        if (nnz + n > cols.length) {
+            int size = Math.max(cols.length * 2, nnz + n);
+            cols = Arrays.copyOf(cols, size);
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    /* sorts cells from..to by column: insertion sort for short rows, packed keys otherwise */
+    private void sortRow(int from, int to) {
+        if (to - from > 32) {
+            long[] keys = new long[to - from];
+            for (int i = from; i < to; i++) {
+                keys[i - from] = (long) cols[i] << 32 | (Float.floatToRawIntBits(values[i]) & 0xffffffffL);
+            }
+            Arrays.sort(keys);
+            for (int i = from; i < to; i++) {
+                cols[i] = (int) (keys[i - from] >>> 32);
+                values[i] = Float.intBitsToFloat((int) keys[i - from]);
+            }
+            return;
+        }
+        for (int i = from + 1; i < to; i++) {
+            int c = cols[i];
+            float v = values[i];
+            int j = i - 1;
+            while (j >= from && cols[j] > c) {
+                cols[j + 1] = cols[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            cols[j + 1] = c;
+            values[j + 1] = v;
+        }
+    }
+}
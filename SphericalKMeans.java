@@ -0,0 +1,238 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spherical k-means over the term document matrix: paragraphs and
+ * centroids are unit vectors, each paragraph belongs to the centroid with
+ * the largest cosine, and each centroid is the normalised sum of its
+ * paragraphs. An alternative to CompetitiveLearning that usually settles
+ * within a few dozen iterations.
+ *
+ * Seeding is k-means++: the first centroid is a random paragraph, each
+ * next one a paragraph drawn with probability proportional to its squared
+ * distance from the closest centroid so far.
+ *
+ * Assignment uses Hamerly's bounds on the Euclidean distance between unit
+ * vectors, sqrt(2 - 2 cos), which obeys the triangle inequality. Every
+ * paragraph keeps an upper bound on the distance to its own centroid and
+ * a lower bound on the distance to any other. When centroids move by
+ * delta the bounds loosen by delta, and a paragraph whose upper bound is
+ * still below its lower bound, or below half the distance from its
+ * centroid to the nearest other centroid, cannot change cluster and is
+ * skipped without computing any similarity. Paragraphs are assigned in
+ * RowBlocks on a ForkJoinPool.
+ *
+ * Centroid sums are kept up to date as paragraphs move, so an iteration
+ * costs the cells of the paragraphs that changed cluster rather than all
+ * of them.
+ */
+class SphericalKMeans
+{
+    static final int DEFAULT_ITERATIONS = 100;
+
+    private final int k;
+    private final int iterations;
+    private final long seed;
+    private final int threads;
+    private final LongAdder similarities = new LongAdder();
+
+    /**
+     * @param k number of clusters
+     * @param iterations most assignment passes after seeding
+     * @param seed for k-means++ seeding
+     * @param threads for assignment, 1 runs on the calling thread
+     */
+    public SphericalKMeans(int k, int iterations, long seed, int threads) {
+        if (k < 1) throw new IllegalArgumentException("cluster count must be positive: " + k);
+        if (iterations < 0) throw new IllegalArgumentException("iteration count must not be negative: " + iterations);
+        if (threads < 1) throw new IllegalArgumentException("thread count must be positive: " + threads);
+        this.k = k;
+        this.iterations = iterations;
+        this.seed = seed;
+        this.threads = threads;
+    }
+
+    /** Returns the number of paragraph-centroid similarities computed by the last cluster() call. */
+    public long similarities() { return similarities.sum(); }
+
+    /**
+     * Clusters the rows of the matrix.
+     * @param tdm
+     * @return the cluster of each row and the centroids
+     */
+    public Clusters cluster(SparseMatrix tdm) {
+        return cluster(new CosineKernel(tdm));
+    }
+
+    /**
+     * Clusters the rows of the kernel's matrix. With fewer rows than k,
+     * some clusters stay empty.
+     * @param kernel
+     * @return the cluster of each row and the centroids
+     */
+    public Clusters cluster(CosineKernel kernel) {
+        int p = kernel.rows(), d = kernel.matrix().columns();
+        similarities.reset();
+        double[] centroids = seed(kernel, d);
+        double[] sums = new double[Clusters.cells(k, d)];
+        int[] assignment = new int[p];
+        int[] previous = new int[p];
+        double[] upper = new double[p];
+        double[] lower = new double[p];
+        double[] half = new double[k];      /* half the distance to the nearest other centroid */
+        double[] moved = new double[k];
+        double[] next = new double[sums.length];
+        // the centroid-centroid distances cost k * k * d; only worth it while that is below a full assignment
+        boolean centroidBounds = (long) k * d <= kernel.matrix().nnz();
+
+        try (RowBlocks blocks = new RowBlocks(threads)) {
+            assign(blocks, kernel, centroids, 0, p, assignment, upper, lower, half, true);
+            for (int r = 0; r < p; r++) kernel.addTo(r, 1, sums, assignment[r] * d);
+            int it = 0;
+            while (it < iterations) {
+                // move every centroid to the normalised sum of its paragraphs
+                System.arraycopy(sums, 0, next, 0, sums.length);
+                int farthest = -1;
+                for (int j = 0; j < k; j++) {
+                    int off = j * d;
+                    if (isZero(next, off, d)) System.arraycopy(centroids, off, next, off, d);
+                    else CosineKernel.normalize(next, off, d);
+                    moved[j] = distance(centroids, off, next, off, d);
+                    if (farthest < 0 || moved[j] > moved[farthest]) farthest = j;
+                }
+                double[] swap = centroids;
+                centroids = next;
+                next = swap;
+                double secondMove = 0;
+                for (int j = 0; j < k; j++) if (j != farthest) secondMove = Math.max(secondMove, moved[j]);
+                for (int r = 0; r < p; r++) {
+                    int a = assignment[r];
+                    upper[r] += moved[a];
+                    lower[r] -= a == farthest ? secondMove : moved[farthest];
+                }
+                if (centroidBounds) halfDistances(centroids, d, half);
+
+                System.arraycopy(assignment, 0, previous, 0, p);
+                assign(blocks, kernel, centroids, 0, p, assignment, upper, lower, half, false);
+                it++;
+                int changes = 0;
+                for (int r = 0; r < p; r++) {
+                    if (assignment[r] == previous[r]) continue;
+                    kernel.addTo(r, -1, sums, previous[r] * d);
+                    kernel.addTo(r, 1, sums, assignment[r] * d);
+                    changes++;
+                }
+                if (changes == 0) break;
+            }
+            double[] similarity = new double[p];
+            for (int r = 0; r < p; r++) similarity[r] = kernel.dot(r, centroids, assignment[r] * d);
+            return new Clusters(assignment, similarity, centroids, k, d, it);
+        }
+    }
+
+    /* k-means++: each next centroid is a row drawn in proportion to its squared distance */
+    private double[] seed(CosineKernel kernel, int d) {
+        int p = kernel.rows();
+        double[] centroids = new double[Clusters.cells(k, d)];
+        if (d == 0) return centroids;
+        // beyond the rows, centroids are unit axes so that every centroid has unit length
+        for (int j = p; j < k; j++) centroids[j * d + j % d] = 1;
+        if (p == 0) return centroids;
+        Random random = new Random(seed);
+        double[] closest = new double[p];       /* squared distance to the nearest centroid so far */
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+        int row = random.nextInt(p);
+        for (int j = 0; j < Math.min(k, p); j++) {
+            if (kernel.norm(row) > 0) kernel.addTo(row, 1, centroids, j * d);
+            else centroids[j * d] = 1;
+            if (j + 1 == Math.min(k, p)) break;
+            double total = 0;
+            for (int r = 0; r < p; r++) {
+                closest[r] = Math.min(closest[r], squaredDistance(kernel, r, kernel.dot(r, centroids, j * d)));
+                total += closest[r];
+            }
+            if (total > 0) {
+                double target = random.nextDouble() * total;
+                row = 0;
+                while (row + 1 < p && (target -= closest[row]) >= 0) row++;
+            } else {
+                row = random.nextInt(p);
+            }
+        }
+        return centroids;
+    }
+
+    /* assigns rows from..to */
+    private void assign(RowBlocks blocks, CosineKernel kernel, double[] centroids, int from, int to,
+                        int[] assignment, double[] upper, double[] lower, double[] half, boolean all) {
+        blocks.run(from, to,
+                (start, end) -> assignBlock(kernel, centroids, start, end, assignment, upper, lower, half, all));
+    }
+
+    private void assignBlock(CosineKernel kernel, double[] centroids, int from, int to, int[] assignment,
+                             double[] upper, double[] lower, double[] half, boolean all) {
+        int d = kernel.matrix().columns();
+        long computed = 0;
+        for (int r = from; r < to; r++) {
+            int a = assignment[r];
+            if (!all) {
+                double bound = Math.max(half[a], lower[r]);
+                if (upper[r] <= bound) continue;
+                upper[r] = Math.sqrt(squaredDistance(kernel, r, kernel.dot(r, centroids, a * d)));
+                computed++;
+                if (upper[r] <= bound) continue;
+            }
+            // the bounds failed: compare with every centroid
+            int best = 0;
+            double first = Double.POSITIVE_INFINITY, second = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < k; j++) {
+                double dist = Math.sqrt(squaredDistance(kernel, r, kernel.dot(r, centroids, j * d)));
+                if (dist < first) {
+                    second = first;
+                    first = dist;
+                    best = j;
+                } else if (dist < second) {
+                    second = dist;
+                }
+            }
+            computed += k;
+            assignment[r] = best;
+            upper[r] = first;
+            lower[r] = second;
+        }
+        similarities.add(computed);
+    }
+
+    /* |x - c|^2 for row x and a unit centroid c with x . c = cos; |x| is 1, or 0 for an empty row */
+    private static double squaredDistance(CosineKernel kernel, int r, double cos) {
+        double self = kernel.norm(r) > 0 ? 1 : 0;
+        return Math.max(0, self + 1 - 2 * cos);
+    }
+
+    private void halfDistances(double[] centroids, int d, double[] half) {
+        Arrays.fill(half, Double.POSITIVE_INFINITY);
+        for (int a = 0; a < k; a++) {
+            for (int b = a + 1; b < k; b++) {
+                double dist = distance(centroids, a * d, centroids, b * d, d) / 2;
+                if (dist < half[a]) half[a] = dist;
+                if (dist < half[b]) half[b] = dist;
+            }
+        }
+        if (k == 1) half[0] = 0;
+    }
+
+    private static double distance(double[] x, int xOff, double[] y, int yOff, int n) {
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            double diff = x[xOff + i] - y[yOff + i];
+            sum += diff * diff;
+        }
+        return Math.sqrt(sum);
+    }
+
+    private static boolean isZero(double[] v, int off, int n) {
+        for (int i = off; i < off + n; i++) if (v[i] != 0) return false;
+        return true;
+    }
+}
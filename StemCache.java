@@ -0,0 +1,160 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded memo of surface word to stem, placed in front of the Stemmer.
+ *
+ * Word frequencies follow Zipf's law, so a few thousand entries answer
+ * almost every token and the Porter steps only run for words that miss.
+ *
+ * Lookups take no lock: the table is an open addressing array read
+ * through an AtomicReferenceArray and entries are immutable once
+ * published. Inserts are serialized and evict with the CLOCK algorithm,
+ * which approximates LRU with a single reference bit per entry instead
+ * of reordering a list on every hit.
+ */
+class StemCache
+{
+    static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final class Entry
+    {
+        final char[] word;
+        final char[] stem;
+        final int hash;
+        boolean referenced;     /* set on hit, cleared by the clock hand */
+        int slot;               /* position in table, only touched under the lock */
+
+        Entry(char[] word, char[] stem, int hash) {
+            this.word = word;
+            this.stem = stem;
+            this.hash = hash;
+        }
+
+        boolean matches(char[] w, int off, int len) {
+            if (word.length != len) return false;
+            for (int c = 0; c < len; c++) if (word[c] != w[off + c]) return false;
+            return true;
+        }
+    }
+
+    /* marks a slot whose entry was evicted, so probe chains stay intact */
+    private static final Entry REMOVED = new Entry(new char[0], new char[0], 0);
+
+    private final int capacity;
+    private volatile AtomicReferenceArray<Entry> table;
+    private final Entry[] ring;     /* clock order */
+    private int count, hand, removed;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity the most words kept before old ones are evicted
+     */
+    public StemCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("cache capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.ring = new Entry[capacity];
+        this.table = new AtomicReferenceArray<Entry>(tableSize(capacity));
+    }
+
+    /**
+     * Stems the len characters of w starting at off and copies the stem
+     * into out at outOff, which must have room for len characters.
+     * @return the length of the stem
+     */
+    public int stem(char[] w, int off, int len, char[] out, int outOff) {
+        int h = hash(w, off, len);
+        Entry e = find(table, w, off, len, h);
+        if (e != null) {
+            hits.increment();
+            if (!e.referenced) e.referenced = true;
+        } else {
+            misses.increment();
+            Stemmer s = Stemmer.get();
+            s.stem(w, off, len);
+            e = new Entry(Arrays.copyOfRange(w, off, off + len),
+                    Arrays.copyOf(s.getResultBuffer(), s.getResultLength()), h);
+            put(e);
+        }
+        System.arraycopy(e.stem, 0, out, outOff, e.stem.length);
+        return e.stem.length;
+    }
+
+    public long hits() { return hits.sum(); }
+
+    public long misses() { return misses.sum(); }
+
+    /** Returns the number of words currently cached. */
+    public synchronized int size() { return count; }
+
+    private static Entry find(AtomicReferenceArray<Entry> t, char[] w, int off, int len, int h) {
+        int mask = t.length() - 1;
+        for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+            Entry e = t.get(slot);
+            if (e == null) return null;
+            if (e != REMOVED && e.hash == h && e.matches(w, off, len)) return e;
+        }
+    }
+
+    private synchronized void put(Entry e) {
+        AtomicReferenceArray<Entry> t = table;
+        // another thread may have stemmed the same word while we did
+        if (find(t, e.word, 0, e.word.length, e.hash) != null) return;
+
+        if (count < capacity) {
+            ring[count++] = e;
+        } else {
+            // sweep the hand, giving referenced entries a second chance
+            while (ring[hand].referenced) {
+                ring[hand].referenced = false;
+                hand = (hand + 1) % capacity;
+            }
+            t.set(ring[hand].slot, REMOVED);
+            removed++;
+            ring[hand] = e;
+            hand = (hand + 1) % capacity;
+        }
+
+        if (removed > capacity / 2) {
+            // too many tombstones: publish a clean table, readers of the old one still see valid entries
+            t = new AtomicReferenceArray<Entry>(t.length());
+            for (int r = 0; r < count; r++) insert(t, ring[r]);
+            removed = 0;
+            table = t;
+        } else {
+            insert(t, e);
+        }
+    }
+
+    private void insert(AtomicReferenceArray<Entry> t, Entry e) {
+        int mask = t.length() - 1;
+        int slot = e.hash & mask;
+        while (true) {
+            Entry x = t.get(slot);
+            if (x == null) break;
+            if (x == REMOVED) {
+                removed--;
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        e.slot = slot;
+        t.set(slot, e);
+    }
+
+    /* at least twice the capacity, so live entries and tombstones never fill it */
+    private static int tableSize(int capacity) {
+        int n = 16;
+        while (n < capacity * 2) n <<= 1;
+        return n;
+    }
+
+    private static int hash(char[] w, int off, int len) {
+        int h = 0;
+        for (int c = off, end = off + len; c < end; c++) h = 31 * h + w[c];
+        return h ^ (h >>> 16);
+    }
+}
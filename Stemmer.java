@@ -38,7 +38,6 @@
 //import java.io.*;
 import java.io.*;
 import java.util.ArrayList;
-import java.util.Scanner;
 
 /**
  * Stemmer, implementing the Porter Stemming Algorithm
@@ -54,18 +53,158 @@ class Stemmer
             i_end, /* offset to end of stemmed word */
             j, k;
     private static final int INC = 50;
+    private static final ThreadLocal<Stemmer> LOCAL = ThreadLocal.withInitial(Stemmer::new);
+
+    /** Runs the text mining pipeline over a file of paragraphs and writes
+     * the term document matrix to TDM.csv. Note that the word stemmed is
+     * expected to be in lower case: forcing lower case must be done outside
+     * the Stemmer class.
+     * Usage: Stemmer [options] [paragraphs-file [stop-words-file]]
+     * (defaults to paragraphs.txt and stop_words.txt, see Options)
+     * A wrong option or setting is reported with the usage, and the
+     * process exits with status 2.
+     */
+    public static void main(String[] args) throws IOException {
+        try {
+            run(Options.parse(args));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Stemmer: " + e.getMessage());
+            System.err.print(Options.USAGE);
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Runs the pipeline with the given settings.
+     * @param opts
+     * @throws IOException
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    static void run(Options opts) throws IOException {
+        Progress progress = new Progress(opts.verbosity, System.err);
+        TermDictionary dictionary = new TermDictionary();
+        StopWordFilter stopWords = StopWordFilter.load(opts.stopWords);
+        StemCache cache = new StemCache(opts.cacheSize);
+        Weighting weighting = new Weighting(Weighting.scheme(opts.weight), opts.l2);
+        VocabularyPruner pruner = new VocabularyPruner(opts.top, opts.rank, opts.minDf, opts.maxDf);
+        IndexBuilder index = opts.index != null ? new IndexBuilder() : null;
+        Deduplicator duplicates = opts.dedup > 0 ? new Deduplicator(opts.dedup, opts.seed) : null;
+        progress.begin();
+        SparseMatrix tdm = prepFeatures(opts.corpus, stopWords, cache, opts.threads, dictionary, weighting, pruner,
+                duplicates, index);
+        progress.done("ingest", "paragraphs", tdm.rows(), "terms", dictionary.size(), "cells", tdm.nnz(),
+                "cache.hits", cache.hits(), "cache.misses", cache.misses(), "threads", opts.threads,
+                "weight", weighting.name() + (opts.l2 ? "+l2" : ""));
+        // rows are numbered by the paragraph they came from, duplicates or not
+        int[] numbers = null;
+        if (duplicates != null) {
+            // the paragraphs were signed and checked during the ingest, whose time includes this; signing
+            // ran on the ingest threads, checking in corpus order
+            progress.report("dedup", duplicates.nanos(), "paragraphs", duplicates.paragraphs(),
+                    "duplicates", duplicates.duplicates(), "threshold", opts.dedup,
+                    "sign.ms", duplicates.signNanos() / 1_000_000);
+            progress.begin();
+            writeDuplicates("duplicates.csv", duplicates);
+            progress.done("duplicates", "file", "duplicates.csv", "rows", duplicates.duplicates());
+            numbers = duplicates.keptParagraphs();
+        }
+        if (opts.csv) {
+            String csv = opts.gzip ? "TDM.csv.gz" : "TDM.csv";
+            progress.begin();
+            paragraphs(csv, opts.gzip, dictionary, tdm, numbers, progress);
+            progress.done("csv", "file", csv, "rows", tdm.rows() + 1, "columns", tdm.columns() + 1);
+        }
+        if (opts.binary) {
+            progress.begin();
+            TdmFile.write("TDM.bin", dictionary, tdm);
+            progress.done("bin", "file", "TDM.bin", "rows", tdm.rows(), "cells", tdm.nnz());
+        }
+        if (index != null) {
+            progress.begin();
+            long bytes = index.write(opts.index, dictionary);
+            progress.done("index", "file", opts.index, "terms", dictionary.size(), "postings", index.postings(),
+                    "bytes", bytes);
+        }
+        if (opts.query != null) {
+            Searcher searcher = new Searcher(InvertedIndex.load(opts.index), stopWords, cache,
+                    Weighting.scheme(opts.score));
+            progress.begin();
+            int queries = query(opts.query, searcher, opts.hits, numbers);
+            progress.done("query", "queries", queries, "score", opts.score, "hits", opts.hits);
+        }
+        int k = opts.neurons > 0 ? opts.neurons : Clusters.defaultK(tdm.rows());
+        Clusters clusters = null;
+        if (!opts.cluster.equals("none")) {
+            progress.begin();
+            if (opts.cluster.equals("kmeans")) {
+                clusters = new SphericalKMeans(k, opts.iterations, opts.seed, opts.threads).cluster(tdm);
+            } else {
+                clusters = new CompetitiveLearning(k, opts.alpha, opts.epochs, opts.seed, opts.batch,
+                        opts.patience, opts.threads).cluster(tdm);
+            }
+            writeClusters("clusters.csv", clusters, numbers);
+            progress.done("cluster", "method", opts.cluster, "k", k, "used", clusters.used(),
+                    "epochs", clusters.epochs);
+        }
+        if (opts.online != null) {
+            // a pruned vocabulary stays as the pruner left it
+            OnlineClusterer online = new OnlineClusterer(stopWords, cache, dictionary, pruner.keepsAll(), weighting,
+                    k, opts.newCluster);
+            if (clusters != null) online.load(tdm, clusters.assignment);
+            progress.begin();
+            int added = online(opts.online, online);
+            progress.done("online", "paragraphs", added, "terms", dictionary.size(), "documents",
+                    online.documents());
+        }
+    }
 
-    /** Test program for demonstrating the Stemmer.  It reads text from a
-     * a list of files, stems each word, and writes the result to standard
-     * output. Note that the word stemmed is expected to be in lower case:
-     * forcing lower case must be done outside the Stemmer class.
-     * Usage: Stemmer file-name file-name ...
+    /**
+     *  Clusters the lines of a file, or of standard input for "-", one
+     *  paragraph per line, printing the cluster of each as it arrives,
+     *  numbered from 1, and its similarity
+     * @param pathName
+     * @param online
+     * @return the number of paragraphs read
      */
-    public static void main(String[] args) throws FileNotFoundException {
-        String pathName = System.getProperty("user.dir") + "\\src\\paragraphs.txt";
-        prepFeatures(pathName);
+    public static int online(String pathName, OnlineClusterer online) throws IOException {
+        InputStream in = pathName.equals("-") ? System.in : new FileInputStream(pathName);
+        int first = online.documents(), n = 0;
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(in, "UTF-8"))) {
+            for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+                int cluster = online.add(line);
+                n++;
+                System.out.println("Paragraph " + (first + n) + ", " + (cluster + 1) + ", "
+                        + online.similarity() + ", ");
+            }
+        }
+        return n;
     }
 
+    /**
+     *  Ranks the paragraphs against each line of a file, or of standard
+     *  input for "-", printing the best for each query, numbered from 1,
+     *  and their scores
+     * @param pathName
+     * @param searcher
+     * @param hits paragraphs per query
+     * @param numbers paragraph number of each row, from 0, or null for the row order
+     * @return the number of queries read
+     */
+    public static int query(String pathName, Searcher searcher, int hits, int[] numbers) throws IOException {
+        InputStream in = pathName.equals("-") ? System.in : new FileInputStream(pathName);
+        int n = 0;
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(in, "UTF-8"))) {
+            for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+                Searcher.Hits found = searcher.search(line, hits);
+                n++;
+                for (int h = 0; h < found.size(); h++) {
+                    int doc = numbers != null ? numbers[found.docs[h]] : found.docs[h];
+                    System.out.println("Query " + n + ", Paragraph " + (doc + 1) + ", " + found.scores[h] + ", ");
+                }
+            }
+        }
+        return n;
+    }
 
     /* unit of size whereby b is increased */
     public Stemmer()
@@ -216,9 +355,13 @@ class Stemmer
         k = j+l;
     }
 
-    /* r(s) is used further down. */
+    /* setto(s) for a replacement taken from a SuffixTrie. */
 
-    private final void r(String s) { if (m() > 0) setto(s); }
+    private final void setto(char[] s)
+    {  int l = s.length;
+        System.arraycopy(s, 0, b, j+1, l);
+        k = j+l;
+    }
 
    /* step1() gets rid of plurals and -ed or -ing. e.g.
           caresses  ->  caress
@@ -267,83 +410,56 @@ class Stemmer
       -ation) maps to -ize etc. note that the string before the suffix must give
       m() > 0. */
 
-    private final void step3() { if (k == 0) return; /* For Bug 1 */ switch (b[k-1])
-    {
-        case 'a': if (ends("ational")) { r("ate"); break; }
-            if (ends("tional")) { r("tion"); break; }
-            break;
-        case 'c': if (ends("enci")) { r("ence"); break; }
-            if (ends("anci")) { r("ance"); break; }
-            break;
-        case 'e': if (ends("izer")) { r("ize"); break; }
-            break;
-        case 'l': if (ends("bli")) { r("ble"); break; }
-            if (ends("alli")) { r("al"); break; }
-            if (ends("entli")) { r("ent"); break; }
-            if (ends("eli")) { r("e"); break; }
-            if (ends("ousli")) { r("ous"); break; }
-            break;
-        case 'o': if (ends("ization")) { r("ize"); break; }
-            if (ends("ation")) { r("ate"); break; }
-            if (ends("ator")) { r("ate"); break; }
-            break;
-        case 's': if (ends("alism")) { r("al"); break; }
-            if (ends("iveness")) { r("ive"); break; }
-            if (ends("fulness")) { r("ful"); break; }
-            if (ends("ousness")) { r("ous"); break; }
-            break;
-        case 't': if (ends("aliti")) { r("al"); break; }
-            if (ends("iviti")) { r("ive"); break; }
-            if (ends("biliti")) { r("ble"); break; }
-            break;
-        case 'g': if (ends("logi")) { r("log"); break; }
-    } }
-
-    /* step4() deals with -ic-, -full, -ness etc. similar strategy to step3. */
-
-    private final void step4() { switch (b[k])
-    {
-        case 'e': if (ends("icate")) { r("ic"); break; }
-            if (ends("ative")) { r(""); break; }
-            if (ends("alize")) { r("al"); break; }
-            break;
-        case 'i': if (ends("iciti")) { r("ic"); break; }
-            break;
-        case 'l': if (ends("ical")) { r("ic"); break; }
-            if (ends("ful")) { r(""); break; }
-            break;
-        case 's': if (ends("ness")) { r(""); break; }
-            break;
-    } }
-
-    /* step5() takes off -ant, -ence etc., in context <c>vcvc<v>. */
+    private static final SuffixTrie STEP3 = new SuffixTrie(
+            "ational", "ate",   "tional", "tion",   "enci", "ence",    "anci", "ance",
+            "izer", "ize",      "bli", "ble",       "alli", "al",      "entli", "ent",
+            "eli", "e",         "ousli", "ous",     "ization", "ize",  "ation", "ate",
+            "ator", "ate",      "alism", "al",      "iveness", "ive",  "fulness", "ful",
+            "ousness", "ous",   "aliti", "al",      "iviti", "ive",    "biliti", "ble",
+            "logi", "log");
+
+   /* step4() deals with -ic-, -full, -ness etc. similar strategy to step3. */
+
+    private static final SuffixTrie STEP4 = new SuffixTrie(
+            "icate", "ic",  "ative", "",  "alize", "al",  "iciti", "ic",
+            "ical", "ic",   "ful", "",    "ness", "");
+
+   /* step5() takes off -ant, -ence etc., in context <c>vcvc<v>. -ement is
+      tried before -ment and -ent, so element etc. are not stripped before
+      the m; -ion only goes after s or t; -ou takes care of -ous. */
+
+    private static final SuffixTrie STEP5 = new SuffixTrie(
+            "al", "",    "ance", "",  "ence", "",  "er", "",    "ic", "",
+            "able", "",  "ible", "",  "ant", "",   "ement", "", "ment", "",
+            "ent", "",   "ion", "",   "ou", "",    "ism", "",   "ate", "",
+            "iti", "",   "ous", "",   "ive", "",   "ize", "");
+    private static final int ION = 11;
+
+   /* In each of these steps no suffix in the table is a suffix of another
+      except where the longer one comes first in Porter's lists, so the
+      longest match is the one the lists would pick. The walk stops at
+      b[0], so k == 0 (Bug 1) needs no check of its own. */
+
+    private final void step3()
+    {  int rule = STEP3.longest(b, k);
+        if (rule < 0) return;
+        j = k - STEP3.length(rule);
+        if (m() > 0) setto(STEP3.replacement(rule));
+    }
 
-    private final void step5()
-    {   if (k == 0) return; /* for Bug 1 */ switch (b[k-1])
-    {  case 'a': if (ends("al")) break; return;
-        case 'c': if (ends("ance")) break;
-            if (ends("ence")) break; return;
-        case 'e': if (ends("er")) break; return;
-        case 'i': if (ends("ic")) break; return;
-        case 'l': if (ends("able")) break;
-            if (ends("ible")) break; return;
-        case 'n': if (ends("ant")) break;
-            if (ends("ement")) break;
-            if (ends("ment")) break;
-            /* element etc. not stripped before the m */
-            if (ends("ent")) break; return;
-        case 'o': if (ends("ion") && j >= 0 && (b[j] == 's' || b[j] == 't')) break;
-            /* j >= 0 fixes Bug 2 */
-            if (ends("ou")) break; return;
-        /* takes care of -ous */
-        case 's': if (ends("ism")) break; return;
-        case 't': if (ends("ate")) break;
-            if (ends("iti")) break; return;
-        case 'u': if (ends("ous")) break; return;
-        case 'v': if (ends("ive")) break; return;
-        case 'z': if (ends("ize")) break; return;
-        default: return;
+    private final void step4()
+    {  int rule = STEP4.longest(b, k);
+        if (rule < 0) return;
+        j = k - STEP4.length(rule);
+        if (m() > 0) setto(STEP4.replacement(rule));
     }
+
+    private final void step5()
+    {  int rule = STEP5.longest(b, k);
+        if (rule < 0) return;
+        j = k - STEP5.length(rule);
+        /* j >= 0 fixes Bug 2 */
+        if (rule == ION && !(j >= 0 && (b[j] == 's' || b[j] == 't'))) return;
         if (m() > 1) k = j;
     }
 
@@ -369,593 +485,176 @@ class Stemmer
         i_end = k+1; i = 0;
     }
 
+    /** Returns the Stemmer owned by the calling thread. Stemming through it
+     * with the stem(char[], int, int) family reuses one buffer per thread
+     * instead of creating a Stemmer for every word.
+     */
+    public static Stemmer get() { return LOCAL.get(); }
+
+    /** Stems the len characters of w starting at off, replacing anything
+     * added so far. The result is left in getResultBuffer()/getResultLength().
+     */
+    public void stem(char[] w, int off, int len)
+    {  if (len + INC > b.length) b = new char[len + INC];
+        System.arraycopy(w, off, b, 0, len);
+        i = len;
+        stem();
+    }
+
+    /** Stems a word held in a CharSequence; see stem(char[], int, int). */
+    public void stem(CharSequence w)
+    {  int len = w.length();
+        if (len + INC > b.length) b = new char[len + INC];
+        for (int c = 0; c < len; c++) b[c] = w.charAt(c);
+        i = len;
+        stem();
+    }
+
+    /** Stems the len characters of w starting at off and copies the stem
+     * into out at outOff, which must have room for len characters.
+     * Returns the length of the stem.
+     */
+    public int stem(char[] w, int off, int len, char[] out, int outOff)
+    {  stem(w, off, len);
+        System.arraycopy(b, 0, out, outOff, i_end);
+        return i_end;
+    }
+
     // Removes stop words
     // Removes numbers
     // Removes punctuation
-    public static void prepFeatures(String pathName) throws FileNotFoundException {
-
-        String token = "";
-        Scanner inFile1 = new Scanner(new File(System.getProperty("user.dir") + "\\src\\paragraphs.txt")).useDelimiter(" ");
-        ArrayList<String> text = new ArrayList<String>();
-        ArrayList<String> words = new ArrayList<String>();
-        ArrayList<String> stemmedWords = new ArrayList<String>();
-
-        while (inFile1.hasNext()) {
-            // find next line
-            token = inFile1.next();
-            text.add(token);
-        }
-        inFile1.close();
-
-        for(int i = 0; i < text.size(); i++){
-            String temp = text.get(i).toLowerCase();
-            // removing punctuation (except for ";" because this is used as a delimiter for paragraphs)
-            temp = temp.replaceAll("[?,\".{}!@#$%^&*()|:'`~â€“<>]","");
-            // removing numbers
-            temp = temp.replaceAll("[0-9]", "");
-            temp = temp.replaceAll("]", "");
-            //temp = temp.replaceAll("\n", ";");
-            if(temp.contains(";")){
-                //temp = temp.replaceAll("\n", "");
-                String[] arr = temp.split("[^a-zA-Z;]+");
-                for ( String ss : arr) {
-                    if(ss.length() < 1){
-                        continue;
-                    }
-                    if(ss.length() > 1 && ss.contains(";")){
-                        String split1 = ss.substring(0, ss.length() - 1);
-                        temp = split1;
-                        String split2 = ";";
-                        words.add(split2);
-                    }
-                    // removing stop words
-                    else{
-                        if(ss.equals("a")) continue;
-                        if(ss.equals("able")) continue;
-                        if(ss.equals("about")) continue;
-                        if(ss.equals("across")) continue;
-                        if(ss.equals("all")) continue;
-                        if(ss.equals("almost")) continue;
-                        if(ss.equals("also")) continue;
-                        if(ss.equals("am")) continue;
-                        if(ss.equals("among")) continue;
-                        if(ss.equals("an")) continue;
-                        if(ss.equals("and")) continue;
-                        if(ss.equals("any")) continue;
-                        if(ss.equals("are")) continue;
-                        if(ss.equals("as")) continue;
-                        if(ss.equals("at")) continue;
-                        if(ss.equals("be")) continue;
-                        if(ss.equals("because")) continue;
-                        if(ss.equals("been")) continue;
-                        if(ss.equals("but")) continue;
-                        if(ss.equals("by")) continue;
-                        if(ss.equals("can")) continue;
-                        if(ss.equals("cannot")) continue;
-                        if(ss.equals("could")) continue;
-                        if(ss.equals("dear")) continue;
-                        if(ss.equals("did")) continue;
-                        if(ss.equals("do")) continue;
-                        if(ss.equals("does")) continue;
-                        if(ss.equals("either")) continue;
-                        if(ss.equals("else")) continue;
-                        if(ss.equals("ever")) continue;
-                        if(ss.equals("every")) continue;
-                        if(ss.equals("for")) continue;
-                        if(ss.equals("from")) continue;
-                        if(ss.equals("get")) continue;
-                        if(ss.equals("got")) continue;
-                        if(ss.equals("had")) continue;
-                        if(ss.equals("has")) continue;
-                        if(ss.equals("have")) continue;
-                        if(ss.equals("he")) continue;
-                        if(ss.equals("her")) continue;
-                        if(ss.equals("hers")) continue;
-                        if(ss.equals("him")) continue;
-                        if(ss.equals("his")) continue;
-                        if(ss.equals("how")) continue;
-                        if(ss.equals("however")) continue;
-                        if(ss.equals("i")) continue;
-                        if(ss.equals("if")) continue;
-                        if(ss.equals("in")) continue;
-                        if(ss.equals("into")) continue;
-                        if(ss.equals("is")) continue;
-                        if(ss.equals("it")) continue;
-                        if(ss.equals("its")) continue;
-                        if(ss.equals("just")) continue;
-                        if(ss.equals("least")) continue;
-                        if(ss.equals("let")) continue;
-                        if(ss.equals("like")) continue;
-                        if(ss.equals("likely")) continue;
-                        if(ss.equals("may")) continue;
-                        if(ss.equals("me")) continue;
-                        if(ss.equals("might")) continue;
-                        if(ss.equals("most")) continue;
-                        if(ss.equals("must")) continue;
-                        if(ss.equals("my")) continue;
-                        if(ss.equals("neither")) continue;
-                        if(ss.equals("no")) continue;
-                        if(ss.equals("nor")) continue;
-                        if(ss.equals("not")) continue;
-                        if(ss.equals("of")) continue;
-                        if(ss.equals("[of")) continue;
-                        if(ss.equals("off")) continue;
-                        if(ss.equals("often")) continue;
-                        if(ss.equals("on")) continue;
-                        if(ss.equals("only")) continue;
-                        if(ss.equals("or")) continue;
-                        if(ss.equals("other")) continue;
-                        if(ss.equals("our")) continue;
-                        if(ss.equals("own")) continue;
-                        if(ss.equals("rather")) continue;
-                        if(ss.equals("said")) continue;
-                        if(ss.equals("say")) continue;
-                        if(ss.equals("says")) continue;
-                        if(ss.equals("she")) continue;
-                        if(ss.equals("should")) continue;
-                        if(ss.equals("since")) continue;
-                        if(ss.equals("so")) continue;
-                        if(ss.equals("some")) continue;
-                        if(ss.equals("than")) continue;
-                        if(ss.equals("that")) continue;
-                        if(ss.equals("the")) continue;
-                        if(ss.equals("their")) continue;
-                        if(ss.equals("them")) continue;
-                        if(ss.equals("then")) continue;
-                        if(ss.equals("there")) continue;
-                        if(ss.equals("these")) continue;
-                        if(ss.equals("they")) continue;
-                        if(ss.equals("this")) continue;
-                        if(ss.equals("tis")) continue;
-                        if(ss.equals("to")) continue;
-                        if(ss.equals("too")) continue;
-                        if(ss.equals("twas")) continue;
-                        if(ss.equals("us")) continue;
-                        if(ss.equals("wants")) continue;
-                        if(ss.equals("was")) continue;
-                        if(ss.equals("we")) continue;
-                        if(ss.equals("were")) continue;
-                        if(ss.equals("what")) continue;
-                        if(ss.equals("when")) continue;
-                        if(ss.equals("where")) continue;
-                        if(ss.equals("which")) continue;
-                        if(ss.equals("while")) continue;
-                        if(ss.equals("who")) continue;
-                        if(ss.equals("whom")) continue;
-                        if(ss.equals("why")) continue;
-                        if(ss.equals("will")) continue;
-                        if(ss.equals("with")) continue;
-                        if(ss.equals("would")) continue;
-                        if(ss.equals("yet")) continue;
-                        if(ss.equals("you")) continue;
-                        if(ss.equals("your")) continue;
-                        if(ss.length() < 1) continue;
-                        if(ss.contains(";") && ss.length() > 1) continue;
-                        words.add(ss);
-                    }
-                }
-            }
-            if(temp.equals("a")) continue;
-            if(temp.equals("able")) continue;
-            if(temp.equals("about")) continue;
-            if(temp.equals("across")) continue;
-            if(temp.equals("all")) continue;
-            if(temp.equals("almost")) continue;
-            if(temp.equals("also")) continue;
-            if(temp.equals("am")) continue;
-            if(temp.equals("among")) continue;
-            if(temp.equals("an")) continue;
-            if(temp.equals("and")) continue;
-            if(temp.equals("any")) continue;
-            if(temp.equals("are")) continue;
-            if(temp.equals("as")) continue;
-            if(temp.equals("at")) continue;
-            if(temp.equals("be")) continue;
-            if(temp.equals("because")) continue;
-            if(temp.equals("been")) continue;
-            if(temp.equals("but")) continue;
-            if(temp.equals("by")) continue;
-            if(temp.equals("can")) continue;
-            if(temp.equals("cannot")) continue;
-            if(temp.equals("could")) continue;
-            if(temp.equals("dear")) continue;
-            if(temp.equals("did")) continue;
-            if(temp.equals("do")) continue;
-            if(temp.equals("does")) continue;
-            if(temp.equals("either")) continue;
-            if(temp.equals("else")) continue;
-            if(temp.equals("ever")) continue;
-            if(temp.equals("every")) continue;
-            if(temp.equals("for")) continue;
-            if(temp.equals("from")) continue;
-            if(temp.equals("get")) continue;
-            if(temp.equals("got")) continue;
-            if(temp.equals("had")) continue;
-            if(temp.equals("has")) continue;
-            if(temp.equals("have")) continue;
-            if(temp.equals("he")) continue;
-            if(temp.equals("her")) continue;
-            if(temp.equals("hers")) continue;
-            if(temp.equals("him")) continue;
-            if(temp.equals("his")) continue;
-            if(temp.equals("how")) continue;
-            if(temp.equals("however")) continue;
-            if(temp.equals("i")) continue;
-            if(temp.equals("if")) continue;
-            if(temp.equals("in")) continue;
-            if(temp.equals("into")) continue;
-            if(temp.equals("is")) continue;
-            if(temp.equals("it")) continue;
-            if(temp.equals("its")) continue;
-            if(temp.equals("just")) continue;
-            if(temp.equals("least")) continue;
-            if(temp.equals("let")) continue;
-            if(temp.equals("like")) continue;
-            if(temp.equals("likely")) continue;
-            if(temp.equals("may")) continue;
-            if(temp.equals("me")) continue;
-            if(temp.equals("might")) continue;
-            if(temp.equals("most")) continue;
-            if(temp.equals("must")) continue;
-            if(temp.equals("my")) continue;
-            if(temp.equals("neither")) continue;
-            if(temp.equals("no")) continue;
-            if(temp.equals("nor")) continue;
-            if(temp.equals("not")) continue;
-            if(temp.equals("of")) continue;
-            if(temp.equals("[of")) continue;
-            if(temp.equals("off")) continue;
-            if(temp.equals("often")) continue;
-            if(temp.equals("on")) continue;
-            if(temp.equals("only")) continue;
-            if(temp.equals("or")) continue;
-            if(temp.equals("other")) continue;
-            if(temp.equals("our")) continue;
-            if(temp.equals("own")) continue;
-            if(temp.equals("rather")) continue;
-            if(temp.equals("said")) continue;
-            if(temp.equals("say")) continue;
-            if(temp.equals("says")) continue;
-            if(temp.equals("she")) continue;
-            if(temp.equals("should")) continue;
-            if(temp.equals("since")) continue;
-            if(temp.equals("so")) continue;
-            if(temp.equals("some")) continue;
-            if(temp.equals("than")) continue;
-            if(temp.equals("that")) continue;
-            if(temp.equals("the")) continue;
-            if(temp.equals("their")) continue;
-            if(temp.equals("them")) continue;
-            if(temp.equals("then")) continue;
-            if(temp.equals("there")) continue;
-            if(temp.equals("these")) continue;
-            if(temp.equals("they")) continue;
-            if(temp.equals("this")) continue;
-            if(temp.equals("tis")) continue;
-            if(temp.equals("to")) continue;
-            if(temp.equals("too")) continue;
-            if(temp.equals("twas")) continue;
-            if(temp.equals("us")) continue;
-            if(temp.equals("wants")) continue;
-            if(temp.equals("was")) continue;
-            if(temp.equals("we")) continue;
-            if(temp.equals("were")) continue;
-            if(temp.equals("what")) continue;
-            if(temp.equals("when")) continue;
-            if(temp.equals("where")) continue;
-            if(temp.equals("which")) continue;
-            if(temp.equals("while")) continue;
-            if(temp.equals("who")) continue;
-            if(temp.equals("whom")) continue;
-            if(temp.equals("why")) continue;
-            if(temp.equals("will")) continue;
-            if(temp.equals("with")) continue;
-            if(temp.equals("would")) continue;
-            if(temp.equals("yet")) continue;
-            if(temp.equals("you")) continue;
-            if(temp.equals("your")) continue;
-            if(temp.length() < 1) continue;
-            if(temp.contains(";") && temp.length() > 1) continue;
-            words.add(temp);
-        }
-        stemWords(words);
+    public static void prepFeatures(String pathName) throws IOException {
+        TermDictionary dictionary = new TermDictionary();
+        SparseMatrix tdm = prepFeatures(pathName, StopWordFilter.load("stop_words.txt"),
+                new StemCache(StemCache.DEFAULT_CAPACITY), Runtime.getRuntime().availableProcessors(), dictionary);
+        paragraphs("TDM.csv", false, dictionary, tdm, new Progress(Progress.STAGES, System.err));
     }
 
     /**
-     * breaks words down to their root word
-     * @param words
+     * Tokenizes, cleans, stems and combines the corpus on the given number
+     * of threads into a term document matrix
+     * @param pathName
+     * @param stopWords
+     * @param cache
+     * @param threads
+     * @param dictionary receives the corpus terms; column k of the matrix is term k
+     * @return one row per paragraph, counting each term
+     * @throws IOException
      */
-    public static void stemWords(ArrayList<String> words){
-        ArrayList<String> stemmedWords = new ArrayList<String>();
-        for(int i = 0; i < words.size(); i++){
-            String temp = words.get(i);
-            Stemmer s = new Stemmer();
-            for(int j = 0; j < temp.length(); j++){
-                s.add(temp.charAt(j));
-            }
-            s.stem();
-            String u = s.toString();
-            if(u.length() > 0) stemmedWords.add(u);
-        }
-        paragraphs(words, stemmedWords);
+    public static SparseMatrix prepFeatures(String pathName, StopWordFilter stopWords, StemCache cache, int threads,
+                                            TermDictionary dictionary) throws IOException {
+        return prepFeatures(pathName, stopWords, cache, threads, dictionary, new Weighting(Weighting.RAW, false),
+                new VocabularyPruner(0, VocabularyPruner.CORPUS, 1, 1));
     }
-    public static void paragraphs(ArrayList<String> words, ArrayList<String> stemmedWords){
-        ArrayList<String> paragraph_1 = new ArrayList<String>();
-        ArrayList<String> stemmed_1 = new ArrayList<String>();
-        ArrayList<String> paragraph_2 = new ArrayList<String>();
-        ArrayList<String> stemmed_2 = new ArrayList<String>();
-        ArrayList<String> paragraph_3 = new ArrayList<String>();
-        ArrayList<String> stemmed_3 = new ArrayList<String>();
-        ArrayList<String> paragraph_4 = new ArrayList<String>();
-        ArrayList<String> stemmed_4 = new ArrayList<String>();
-        ArrayList<String> paragraph_5 = new ArrayList<String>();
-        ArrayList<String> stemmed_5 = new ArrayList<String>();
-        ArrayList<String> paragraph_6 = new ArrayList<String>();
-        ArrayList<String> stemmed_6 = new ArrayList<String>();
-        ArrayList<String> paragraph_7 = new ArrayList<String>();
-        ArrayList<String> stemmed_7 = new ArrayList<String>();
-        ArrayList<String> paragraph_8 = new ArrayList<String>();
-        ArrayList<String> stemmed_8 = new ArrayList<String>();
-        ArrayList<String> paragraph_9 = new ArrayList<String>();
-        ArrayList<String> stemmed_9 = new ArrayList<String>();
-        ArrayList<String> paragraph_10 = new ArrayList<String>();
-        ArrayList<String> stemmed_10 = new ArrayList<String>();
-        ArrayList<String> paragraph_11 = new ArrayList<String>();
-        ArrayList<String> stemmed_11 = new ArrayList<String>();
-        ArrayList<String> paragraph_12 = new ArrayList<String>();
-        ArrayList<String> stemmed_12 = new ArrayList<String>();
-        ArrayList<String> paragraph_13 = new ArrayList<String>();
-        ArrayList<String> stemmed_13 = new ArrayList<String>();
-        ArrayList<String> paragraph_14 = new ArrayList<String>();
-        ArrayList<String> stemmed_14 = new ArrayList<String>();
-        ArrayList<String> paragraph_15 = new ArrayList<String>();
-        ArrayList<String> stemmed_15 = new ArrayList<String>();
-        ArrayList<String> paragraph_16 = new ArrayList<String>();
-        ArrayList<String> stemmed_16 = new ArrayList<String>();
-        ArrayList<String> allTXT = new ArrayList<String>();
-        ArrayList<String> stemmed_allTXT = new ArrayList<String>();
-        int count = 1;
-        int index = 0;
-
-        /**
-         * making arraylists for each paragraph using ";" as a delimiter
-         */
-        for(int i = 0; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 1){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_1.add(words.get(i));
-            stemmed_1.add(stemmedWords.get(i));
-        }
-
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 2){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_2.add(words.get(i));
-            stemmed_2.add(stemmedWords.get(i));
-        }
-
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 3){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_3.add(words.get(i));
-            stemmed_3.add(stemmedWords.get(i));
-        }
-
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 4){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_4.add(words.get(i));
-            stemmed_4.add(stemmedWords.get(i));
-        }
-
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 5){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_5.add(words.get(i));
-            stemmed_5.add(stemmedWords.get(i));
-        }
-
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 6){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_6.add(words.get(i));
-            stemmed_6.add(stemmedWords.get(i));
-        }
 
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 7){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_7.add(words.get(i));
-            stemmed_7.add(stemmedWords.get(i));
-        }
-
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 8){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_8.add(words.get(i));
-            stemmed_8.add(stemmedWords.get(i));
-        }
-
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 9){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_9.add(words.get(i));
-            stemmed_9.add(stemmedWords.get(i));
-        }
-
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 10){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_10.add(words.get(i));
-            stemmed_10.add(stemmedWords.get(i));
-        }
-
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 11){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_11.add(words.get(i));
-            stemmed_11.add(stemmedWords.get(i));
-        }
-
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 12){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_12.add(words.get(i));
-            stemmed_12.add(stemmedWords.get(i));
-        }
-
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 13){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_13.add(words.get(i));
-            stemmed_13.add(stemmedWords.get(i));
-        }
-
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 14){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_14.add(words.get(i));
-            stemmed_14.add(stemmedWords.get(i));
-        }
+    /**
+     * As above, then weights the terms
+     * @param pathName
+     * @param stopWords
+     * @param cache
+     * @param threads
+     * @param dictionary receives the corpus terms; column k of the matrix is term k
+     * @param weighting counts the document frequencies on the way and weights the matrix at the end
+     * @param pruner chooses the terms kept as columns (step H)
+     * @return one row per paragraph, weighting each kept term
+     * @throws IOException
+     */
+    public static SparseMatrix prepFeatures(String pathName, StopWordFilter stopWords, StemCache cache, int threads,
+                                            TermDictionary dictionary, Weighting weighting, VocabularyPruner pruner)
+            throws IOException {
+        return prepFeatures(pathName, stopWords, cache, threads, dictionary, weighting, pruner, null, null);
+    }
 
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 15){
-                    index = i + 1;
-                    break;
-                }
+    /**
+     * As above, dropping near duplicate paragraphs first and also handing
+     * every row's counts to a sink, e.g. an IndexBuilder
+     * @param pathName
+     * @param stopWords
+     * @param cache
+     * @param threads
+     * @param dictionary receives the corpus terms; column k of the matrix is term k
+     * @param weighting counts the document frequencies on the way and weights the matrix at the end
+     * @param pruner chooses the terms kept as columns (step H)
+     * @param duplicates drops the paragraphs it finds to repeat an earlier one, and the terms only
+     *                   they had; may be null
+     * @param rows receives the document of each row in order, before weighting; may be null
+     * @return one row per kept paragraph, weighting each kept term
+     * @throws IOException
+     */
+    public static SparseMatrix prepFeatures(String pathName, StopWordFilter stopWords, StemCache cache, int threads,
+                                            TermDictionary dictionary, Weighting weighting, VocabularyPruner pruner,
+                                            Deduplicator duplicates, DocumentSink rows) throws IOException {
+        SparseMatrix tdm = new SparseMatrix();
+        ParallelIngest ingest = new ParallelIngest(pathName, stopWords, cache, threads, duplicates);
+        if (pruner.keepsAll() && duplicates == null) {
+            // each paragraph becomes a sparse row as soon as it arrives
+            ingest.run(dictionary, doc -> {
+                weighting.count(doc);
+                tdm.appendRow(doc);
+                if (rows != null) rows.document(doc);
+            });
+        } else {
+            // the kept terms are only known at the end, so hold the documents until then; terms
+            // found only in dropped duplicates have no paragraph left and are dropped with them
+            TermDictionary all = new TermDictionary();
+            ArrayList<Document> docs = new ArrayList<Document>();
+            ingest.run(all, doc -> {
+                if (duplicates != null && duplicates.duplicateOf(doc) >= 0) return;
+                pruner.count(doc);
+                docs.add(doc);
+            });
+            int[] map = pruner.select(all.size());
+            for (int id = 0; id < all.size(); id++) if (map[id] >= 0) dictionary.add(all, id);
+            for (int d = 0; d < docs.size(); d++) {
+                Document doc = docs.get(d).keep(map);
+                docs.set(d, null);
+                weighting.count(doc);
+                tdm.appendRow(doc);
+                if (rows != null) rows.document(doc);
             }
-            paragraph_15.add(words.get(i));
-            stemmed_15.add(stemmedWords.get(i));
         }
+        tdm.setColumns(dictionary.size());
+        weighting.apply(tdm);
+        return tdm;
+    }
 
-        for(int i = index; i < 100_000; i++){
-            if(words.get(i).contains(";")){
-                count++;
-                if(count > 16){
-                    index = i + 1;
-                    break;
-                }
-            }
-            paragraph_16.add(words.get(i));
-            stemmed_16.add(stemmedWords.get(i));
-        }
-        for(int i = 0; i < words.size(); i++){
-            if(words.get(i).contains(";")) continue;
-            allTXT.add(words.get(i));
-            stemmed_allTXT.add(stemmedWords.get(i));
-        }
+    /**
+     * Writes the keyword set followed by the feature vector of every paragraph
+     * @param pathName replaced if it exists
+     * @param gzip compress the file
+     * @param dictionary
+     * @param tdm
+     * @param progress at DEBUG the vectors are also printed
+     */
+    public static void paragraphs(String pathName, boolean gzip, TermDictionary dictionary, SparseMatrix tdm,
+                                  Progress progress) throws IOException {
+        paragraphs(pathName, gzip, dictionary, tdm, null, progress);
+    }
 
-        ArrayList<String> all = combineStemmed(allTXT, stemmed_allTXT, 0);
-        ArrayList<String> p1 = combineStemmed(paragraph_1, stemmed_1, 1);
-        ArrayList<String> p2 = combineStemmed(paragraph_2, stemmed_2, 2);
-        ArrayList<String> p3 = combineStemmed(paragraph_3, stemmed_3, 3);
-        ArrayList<String> p4 = combineStemmed(paragraph_4, stemmed_4, 4);
-        ArrayList<String> p5 = combineStemmed(paragraph_5, stemmed_5, 5);
-        ArrayList<String> p6 = combineStemmed(paragraph_6, stemmed_6, 6);
-        ArrayList<String> p7 = combineStemmed(paragraph_7, stemmed_7, 7);
-        ArrayList<String> p8 = combineStemmed(paragraph_8, stemmed_8, 8);
-        ArrayList<String> p9 = combineStemmed(paragraph_9, stemmed_9, 9);
-        ArrayList<String> p10 = combineStemmed(paragraph_10, stemmed_10, 10);
-        ArrayList<String> p11 = combineStemmed(paragraph_11, stemmed_11, 11);
-        ArrayList<String> p12 = combineStemmed(paragraph_12, stemmed_12, 12);
-        ArrayList<String> p13 = combineStemmed(paragraph_13, stemmed_13, 13);
-        ArrayList<String> p14 = combineStemmed(paragraph_14, stemmed_14, 14);
-        ArrayList<String> p15 = combineStemmed(paragraph_15, stemmed_15, 15);
-        ArrayList<String> p16 = combineStemmed(paragraph_16, stemmed_16, 16);
+    /**
+     * As above, labelling each row with the paragraph it came from
+     * @param pathName replaced if it exists
+     * @param gzip compress the file
+     * @param dictionary
+     * @param tdm
+     * @param numbers paragraph number of each row, from 0, or null for the row order
+     * @param progress at DEBUG the vectors are also printed
+     */
+    public static void paragraphs(String pathName, boolean gzip, TermDictionary dictionary, SparseMatrix tdm,
+                                  int[] numbers, Progress progress) throws IOException {
         ArrayList<String> kwSet = new ArrayList<String>();
         kwSet.add("Keyword Set");
-        for (int i = 1; i < ((all.size() / 2) + 1); i++) {
-            kwSet.add(all.get(i-1));
+        for (int i = 0; i < dictionary.size(); i++) {
+            kwSet.add(dictionary.word(i));
+        }
+        try (CsvMatrixWriter csv = new CsvMatrixWriter(pathName, gzip)) {
+            csv.writeRow(kwSet);
+            for (int i = 0; i < tdm.rows(); i++) {
+                String label = "Paragraph " + ((numbers != null ? numbers[i] : i) + 1);
+                csv.writeRow(label, tdm, i);
+                if (progress.debug()) print(featureVector(tdm, i, label));
+            }
         }
-        writeCSV(kwSet);
-        writeCSV(featureVector(all, p1, "Paragraph 1"));
-        writeCSV(featureVector(all, p2, "Paragraph 2"));
-        writeCSV(featureVector(all, p3, "Paragraph 3"));
-        writeCSV(featureVector(all, p4, "Paragraph 4"));
-        writeCSV(featureVector(all, p5, "Paragraph 5"));
-        writeCSV(featureVector(all, p6, "Paragraph 6"));
-        writeCSV(featureVector(all, p7, "Paragraph 7"));
-        writeCSV(featureVector(all, p8, "Paragraph 8"));
-        writeCSV(featureVector(all, p9, "Paragraph 9"));
-        writeCSV(featureVector(all, p10, "Paragraph 10"));
-        writeCSV(featureVector(all, p11, "Paragraph 11"));
-        writeCSV(featureVector(all, p12, "Paragraph 12"));
-        writeCSV(featureVector(all, p13, "Paragraph 13"));
-        writeCSV(featureVector(all, p14, "Paragraph 14"));
-        writeCSV(featureVector(all, p15, "Paragraph 15"));
-        writeCSV(featureVector(all, p16, "Paragraph 16"));
     }
 
     /**
@@ -966,94 +665,107 @@ class Stemmer
      * @return
      */
     public static ArrayList<String> combineStemmed(ArrayList<String> paragraph, ArrayList<String> stemmed, int num){
+        // one pass through a hash table instead of comparing every pair of stems
+        TermDictionary dictionary = new TermDictionary();
+        TermCounter counter = new TermCounter();
         for(int i = 0; i < stemmed.size(); i++){
-            String word1 = stemmed.get(i);
-            int count = 1;
-            for(int j = 0; j < stemmed.size(); j++){
-                if(i == j) continue;
-                String word2 = stemmed.get(j);
-                if(word1.equals(word2)){
-                    stemmed.remove(j);
-                    if(paragraph.get(i).length() > paragraph.get(j).length()){
-                        paragraph.set(i, paragraph.get(j));
-                        paragraph.remove(j);
-                    } else paragraph.remove(j);
-                    count++;
-                }
-                else continue;
-            }
-            paragraph.add(Integer.toString(count));
+            counter.add(dictionary.add(stemmed.get(i), paragraph.get(i)));
+        }
+        paragraph.clear();
+        stemmed.clear();
+        for(int t = 0; t < counter.size(); t++){
+            stemmed.add(dictionary.term(counter.term(t)));
+            paragraph.add(dictionary.word(counter.term(t)));
+        }
+        for(int t = 0; t < counter.size(); t++){
+            paragraph.add(Integer.toString(counter.count(t)));
         }
         return paragraph;
     }
 
+    /**
+     *  Writes the cluster of every paragraph, numbered from 1 as in p4.m,
+     *  and its similarity to that cluster
+     * @param pathName replaced if it exists
+     * @param clusters
+     */
+    public static void writeClusters(String pathName, Clusters clusters) throws IOException {
+        writeClusters(pathName, clusters, null);
+    }
+
+    /**
+     *  Writes every paragraph dropped as a near duplicate, the earlier
+     *  paragraph it repeats, both numbered from 1, and their similarity
+     * @param pathName replaced if it exists
+     * @param duplicates
+     */
+    public static void writeDuplicates(String pathName, Deduplicator duplicates) throws IOException {
+        try (CsvMatrixWriter csv = new CsvMatrixWriter(pathName, false)) {
+            ArrayList<String> row = new ArrayList<String>();
+            for (int i = 0; i < duplicates.duplicates(); i++) {
+                row.clear();
+                row.add("Paragraph " + (duplicates.duplicate(i) + 1));
+                row.add("Paragraph " + (duplicates.original(i) + 1));
+                row.add(Double.toString(duplicates.similarity(i)));
+                csv.writeRow(row);
+            }
+        }
+    }
+
+    /**
+     *  As above, labelling each row with the paragraph it came from
+     * @param pathName replaced if it exists
+     * @param clusters
+     * @param numbers paragraph number of each row, from 0, or null for the row order
+     */
+    public static void writeClusters(String pathName, Clusters clusters, int[] numbers) throws IOException {
+        try (CsvMatrixWriter csv = new CsvMatrixWriter(pathName, false)) {
+            ArrayList<String> row = new ArrayList<String>();
+            for (int i = 0; i < clusters.assignment.length; i++) {
+                row.clear();
+                row.add("Paragraph " + ((numbers != null ? numbers[i] : i) + 1));
+                row.add(Integer.toString(clusters.assignment[i] + 1));
+                row.add(Double.toString(clusters.similarity[i]));
+                csv.writeRow(row);
+            }
+        }
+    }
+
     /**
      *  feature vector counts the number of creates a vector that contains
      *  the frequency in which a word in the entire text shows up
      *  in each paragraph
      *
-     * @param allText
-     * @param p
+     * @param tdm
+     * @param row
      * @param c1
      * @return
      */
-    public static ArrayList<String> featureVector(ArrayList<String> allText, ArrayList<String> p, String c1) {
-        ArrayList<String> kSet = new ArrayList<String>();
-        ArrayList<String> pSet = new ArrayList<String>();
-        ArrayList<String> frequency = new ArrayList<String>();
+    public static ArrayList<String> featureVector(SparseMatrix tdm, int row, String c1) {
         ArrayList<String> vector = new ArrayList<String>();
         vector.add(c1);
 
-        for (int i = 0; i < allText.size() / 2; i++) {
-            kSet.add(allText.get(i));
-        }
-        for( int i = 1; i < kSet.size() + 1; i++){
+        for( int i = 0; i < tdm.columns(); i++){
             vector.add("0");
         }
-        for (int i = 0; i < p.size() / 2; i++) {
-            pSet.add(p.get(i));
+        for(int i = tdm.rowStart(row); i < tdm.rowEnd(row); i++){
+            float v = tdm.value(i);
+            vector.set(tdm.col(i) + 1, v == (int) v ? Integer.toString((int) v) : Float.toString(v));
         }
-        for (int i = ((p.size() / 2)); i < p.size(); i++){
-            frequency.add(p.get(i));
-        }
-        for(int i = 0; i < pSet.size(); i++){
-            for(int j = 0; j < kSet.size(); j++){
-                if(pSet.get(i).equals(kSet.get(j))) {
-                    vector.set(j + 1, frequency.get(i));
-                    break;
-                }
-            }
-        }
-        for(int i = 0; i < vector.size(); i++){
-            System.out.print(vector.get(i) + ", ");
-        }
-        System.out.println("");
-        System.out.println("");
         return vector;
     }
 
     /**
-     *  Writes to csv file
-     *  First row is keyWord set for the entire document
-     *  all proceeding rows are frequency vectors for each paragraph
-     * @param row
+     *  Prints a feature vector to the console, one line per vector
+     *  followed by a blank line
+     * @param vector
      */
-    public static void writeCSV(ArrayList<String> row){
-        String filePath = "TDM.csv";
-        try{
-            FileWriter fw = new FileWriter(filePath, true);
-            BufferedWriter bw = new BufferedWriter(fw);
-            PrintWriter pw = new PrintWriter(bw);
-
-            for(int i = 0; i < row.size(); i++){
-                pw.print(row.get(i) + ", ");
-            }
-            pw.println("");
-            pw.flush();
-            pw.close();
-        }
-        catch(Exception e){
-            System.out.println("Failed to save file");
+    public static void print(ArrayList<String> vector) {
+        StringBuilder line = new StringBuilder();
+        for(int i = 0; i < vector.size(); i++){
+            line.append(vector.get(i)).append(", ");
         }
+        line.append(System.lineSeparator()).append(System.lineSeparator());
+        System.out.print(line);
     }
 }
@@ -0,0 +1,46 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Set of stop words, loaded from a word list such as stop_words.txt.
+ *
+ * The words live in a WordTable, so a lookup hashes the token in place
+ * and costs one or two probes no matter how long the list is. Tokens are
+ * never copied into Strings to be checked.
+ *
+ * The list file holds one word per line; blank lines and lines starting
+ * with "#" are ignored. Pointing the pipeline at another file switches
+ * the language without recompiling.
+ */
+class StopWordFilter
+{
+    private final WordTable words = new WordTable();
+
+    /**
+     * Reads a stop word list.
+     * @param pathName
+     * @return the filter
+     * @throws IOException if the list cannot be read
+     */
+    public static StopWordFilter load(String pathName) throws IOException {
+        StopWordFilter filter = new StopWordFilter();
+        for (String line : Files.readAllLines(Paths.get(pathName), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            filter.add(line.toLowerCase(Locale.ROOT));
+        }
+        return filter;
+    }
+
+    /** Adds a word to the set. */
+    public void add(String word) { words.add(word.toCharArray(), 0, word.length()); }
+
+    /** Returns true if the len chars of buf starting at off are a stop word. */
+    public boolean contains(char[] buf, int off, int len) { return words.find(buf, off, len) >= 0; }
+
+    /** Returns the number of distinct stop words. */
+    public int size() { return words.size(); }
+}
@@ -0,0 +1,82 @@
+import java.util.Arrays;
+
+/**
+ * The suffixes of one Porter step in a trie of their reversed letters, so
+ * that the longest suffix a word ends with is found in one walk back from
+ * its last letter, whatever the number of suffixes, instead of comparing
+ * them one after the other.
+ *
+ * Each suffix is a rule with the text that replaces it, kept as a char[]
+ * ready to copy. Nodes are rows of 26 child indexes, one per lower case
+ * letter; any other character ends the walk.
+ */
+final class SuffixTrie
+{
+    private static final int LETTERS = 26;
+
+    private int[] next = new int[LETTERS];     /* child of node n by letter c at n * LETTERS + c, 0 for none */
+    private int[] rule = {-1};                  /* rule that ends at each node, -1 for none */
+    private int nodes = 1;
+    private final int[] lengths;
+    private final char[][] replacements;
+
+    /**
+     * @param rules suffix and replacement pairs, e.g. "ational", "ate"
+     */
+    SuffixTrie(String... rules) {
+        if (rules.length % 2 != 0) throw new IllegalArgumentException("suffix without a replacement: " + rules[rules.length - 1]);
+        lengths = new int[rules.length / 2];
+        replacements = new char[rules.length / 2][];
+        for (int r = 0; r < lengths.length; r++) {
+            String suffix = rules[2 * r];
+            int node = 0;
+            for (int i = suffix.length() - 1; i >= 0; i--) node = child(node, letter(suffix.charAt(i)));
+            if (rule[node] >= 0) throw new IllegalArgumentException("duplicate suffix: " + suffix);
+            rule[node] = r;
+            lengths[r] = suffix.length();
+            replacements[r] = rules[2 * r + 1].toCharArray();
+        }
+    }
+
+    /**
+     * Finds the longest suffix of b[0..k].
+     * @param b
+     * @param k index of the last letter
+     * @return the rule, or -1 if the word ends with none of the suffixes
+     */
+    int longest(char[] b, int k) {
+        int node = 0, found = -1;
+        for (int p = k; p >= 0; p--) {
+            int c = b[p] - 'a';
+            if (c < 0 || c >= LETTERS) break;
+            node = next[node * LETTERS + c];
+            if (node == 0) break;
+            if (rule[node] >= 0) found = rule[node];
+        }
+        return found;
+    }
+
+    /** Returns the length of a rule's suffix. */
+    int length(int rule) { return lengths[rule]; }
+
+    /** Returns the text that replaces a rule's suffix; not to be modified. */
+    char[] replacement(int rule) { return replacements[rule]; }
+
+    private static int letter(char ch) {
+        if (ch < 'a' || ch > 'z') throw new IllegalArgumentException("not a lower case letter: " + ch);
+        return ch - 'a';
+    }
+
+    private int child(int node, int c) {
+        int i = node * LETTERS + c;
+        if (next[i] == 0) {
+            if (nodes == rule.length) {
+                next = Arrays.copyOf(next, nodes * 2 * LETTERS);
+                rule = Arrays.copyOf(rule, nodes * 2);
+                Arrays.fill(rule, nodes, rule.length, -1);
+            }
+            next[i] = nodes++;
+        }
+        return next[i];
+    }
+}
@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary term document matrix file, written with NIO and read back
+ * without copying through memory-mapped buffers.
+ *
+ * Layout, little-endian, every section starting on an 8 byte boundary:
+ *   header    int magic "TDM1", int version, int rows, int columns,
+ *             long nnz, then the long offsets of the four sections
+ *   vocab     int[columns + 1] offsets into the UTF-8 keyword bytes that follow
+ *   rowStart  int[rows + 1]
+ *   cols      int[nnz]
+ *   values    float[nnz]
+ *
+ * The last three are the CSR arrays of SparseMatrix as they are in memory.
+ */
+class TdmFile
+{
+    static final int MAGIC = 'T' | 'D' << 8 | 'M' << 16 | '1' << 24;
+    static final int VERSION = 1;
+    private static final int HEADER = 64;
+    /* elements per mapped page, so that sections over 2 GB can still be mapped */
+    private static final int PAGE_BITS = 28;
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    private final int rows, columns;
+    private final long nnz;
+    private final IntBuffer vocabOffsets;
+    private final ByteBuffer vocabBytes;
+    private final IntBuffer[] rowStart, cols;
+    private final FloatBuffer[] values;
+
+    private TdmFile(FileChannel channel) throws IOException {
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != MAGIC) throw new IOException("not a TDM file");
+        if (header.getInt(4) != VERSION) throw new IOException("unsupported TDM version " + header.getInt(4));
+        rows = header.getInt(8);
+        columns = header.getInt(12);
+        nnz = header.getLong(16);
+        long vocab = header.getLong(24), rowOffset = header.getLong(32);
+        long colOffset = header.getLong(40), valueOffset = header.getLong(48);
+
+        vocabOffsets = SegmentIO.map(channel, vocab, 4L * (columns + 1)).asIntBuffer();
+        int vocabLength = vocabOffsets.get(columns);
+        vocabBytes = SegmentIO.map(channel, vocab + 4L * (columns + 1), vocabLength);
+        rowStart = new IntBuffer[pages(rows + 1L)];
+        for (int p = 0; p < rowStart.length; p++) rowStart[p] = mapPage(channel, rowOffset, rows + 1L, p).asIntBuffer();
+        cols = new IntBuffer[pages(nnz)];
+        for (int p = 0; p < cols.length; p++) cols[p] = mapPage(channel, colOffset, nnz, p).asIntBuffer();
+        values = new FloatBuffer[pages(nnz)];
+        for (int p = 0; p < values.length; p++) values[p] = mapPage(channel, valueOffset, nnz, p).asFloatBuffer();
+    }
+
+    /**
+     * Maps a file written by write(). The mapping stays valid after the
+     * file is closed.
+     * @param pathName
+     * @return the mapped matrix
+     * @throws IOException if the file cannot be read or is not a TDM file
+     */
+    public static TdmFile load(String pathName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(pathName), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER) throw new IOException("not a TDM file");
+            return new TdmFile(channel);
+        }
+    }
+
+    public int rows() { return rows; }
+
+    public int columns() { return columns; }
+
+    public long nnz() { return nnz; }
+
+    public long rowStart(int r) { return rowStart[r >>> PAGE_BITS].get(r & PAGE_MASK); }
+
+    public long rowEnd(int r) { return rowStart(r + 1); }
+
+    public int col(long i) { return cols[(int) (i >>> PAGE_BITS)].get((int) (i & PAGE_MASK)); }
+
+    public float value(long i) { return values[(int) (i >>> PAGE_BITS)].get((int) (i & PAGE_MASK)); }
+
+    /** Returns the keyword labelling column k. */
+    public String word(int k) {
+        int from = vocabOffsets.get(k), to = vocabOffsets.get(k + 1);
+        byte[] b = new byte[to - from];
+        for (int i = 0; i < b.length; i++) b[i] = vocabBytes.get(from + i);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the matrix and the keyword of each column.
+     * @param pathName
+     * @param dictionary labels the columns
+     * @param tdm
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(String pathName, TermDictionary dictionary, SparseMatrix tdm) throws IOException {
+        int rows = tdm.rows(), columns = tdm.columns(), nnz = tdm.nnz();
+        byte[][] words = new byte[columns][];
+        int vocabLength = 0;
+        for (int k = 0; k < columns; k++) {
+            words[k] = k < dictionary.size() ? dictionary.word(k).getBytes(StandardCharsets.UTF_8) : new byte[0];
+            vocabLength += words[k].length;
+        }
+        long vocab = HEADER;
+        long rowOffset = SegmentIO.align(vocab + 4L * (columns + 1) + vocabLength);
+        long colOffset = SegmentIO.align(rowOffset + 4L * (rows + 1));
+        long valueOffset = SegmentIO.align(colOffset + 4L * nnz);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(pathName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            SegmentIO.Writer out = new SegmentIO.Writer(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(rows);
+            out.putInt(columns);
+            out.putLong(nnz);
+            out.putLong(vocab);
+            out.putLong(rowOffset);
+            out.putLong(colOffset);
+            out.putLong(valueOffset);
+            out.padTo(vocab);
+
+            int offset = 0;
+            for (int k = 0; k < columns; k++) {
+                out.putInt(offset);
+                offset += words[k].length;
+            }
+            out.putInt(offset);
+            for (int k = 0; k < columns; k++) out.put(words[k]);
+            out.padTo(rowOffset);
+
+            for (int r = 0; r <= rows; r++) out.putInt(r < rows ? tdm.rowStart(r) : nnz);
+            out.padTo(colOffset);
+            for (int i = 0; i < nnz; i++) out.putInt(tdm.col(i));
+            out.padTo(valueOffset);
+            for (int i = 0; i < nnz; i++) out.putFloat(tdm.value(i));
+            out.flush();
+        }
+    }
+
+    private static int pages(long elements) { return (int) ((elements + PAGE_MASK) >>> PAGE_BITS); }
+
+    /* page p of a section of 4 byte elements */
+    private static ByteBuffer mapPage(FileChannel channel, long offset, long elements, int p) throws IOException {
+        long first = (long) p << PAGE_BITS;
+        long count = Math.min(elements - first, 1L << PAGE_BITS);
+        return SegmentIO.map(channel, offset + 4 * first, 4 * count);
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.Arrays;
+
+/**
+ * Counts the terms of one paragraph in a single pass (step G).
+ *
+ * An open addressing hash map from term id to count, specialised to
+ * primitive ints: adding an occurrence is a hash, a probe or two and an
+ * increment, and nothing is boxed. Terms keep the order of their first
+ * occurrence.
+ *
+ * clear() makes the counter ready for the next paragraph without giving
+ * back its arrays.
+ */
+class TermCounter
+{
+    private int[] terms = new int[16];
+    private int[] counts = new int[16];
+    private int size;
+    private int[] table = new int[32];      /* index + 1, 0 = empty slot */
+
+    /** Counts one occurrence of a term. */
+    public void add(int term) {
+        add(term, 1);
+    }
+
+    /** Counts n occurrences of a term. */
+    public void add(int term, int n) {
+        int mask = table.length - 1;
+        int slot = hash(term) & mask;
+        for (; ; slot = (slot + 1) & mask) {
+            int t = table[slot] - 1;
+            if (t < 0) break;
+            if (terms[t] == term) {
+                counts[t] += n;
+                return;
+            }
+        }
+
+        if (size == terms.length) {
+            terms = Arrays.copyOf(terms, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        terms[size] = term;
+        counts[size] = n;
+        table[slot] = ++size;
+        if (size * 2 > table.length) rehash(table.length * 2);
+    }
+
+    /** Returns the number of distinct terms. */
+    public int size() { return size; }
+
+    /** Returns the i-th distinct term, in order of first occurrence. */
+    public int term(int i) { return terms[i]; }
+
+    /** Returns the number of occurrences of the i-th distinct term. */
+    public int count(int i) { return counts[i]; }
+
+    /** Forgets all terms, keeping the allocated arrays. */
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(table, 0);
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int t = 0; t < size; t++) {
+            int slot = hash(terms[t]) & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = t + 1;
+        }
+    }
+
+    private static int hash(int term) {
+        int h = term * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
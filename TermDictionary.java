@@ -0,0 +1,99 @@
+import java.util.Arrays;
+
+/**
+ * Maps every stem in the corpus to a dense int id, so that the later
+ * stages handle terms as ints rather than Strings.
+ *
+ * The stems live in a WordTable, and the shortest word seen for each stem,
+ * which labels it in the output, is kept in a second char array beside
+ * it, so the dictionary holds a few ints plus the characters of each stem
+ * and word. Ids are handed out in order of first occurrence, which is also
+ * the order of the keyword set.
+ *
+ * A dictionary is not thread safe. Each ingest task fills its own and
+ * merge() folds it into the corpus dictionary in corpus order.
+ */
+class TermDictionary
+{
+    private final WordTable stems = new WordTable();
+    private char[] words = new char[1024];  /* shortest word of each stem */
+    private int used;
+    private int[] wordStart = new int[64];
+    private int[] wordLength = new int[64];
+
+    /**
+     * Returns the id of a stem, adding it if it is new.
+     * @param stem buffer holding the stem
+     * @param off
+     * @param len
+     * @param word buffer holding the word the stem came from, kept if it is
+     *             the shortest word seen for the stem so far
+     * @param woff
+     * @param wlen
+     * @return the id of the stem
+     */
+    public int add(char[] stem, int off, int len, char[] word, int woff, int wlen) {
+        int size = stems.size();
+        int id = stems.add(stem, off, len);
+        if (id < size) {
+            // a shorter word fits over the one it replaces
+            if (wlen < wordLength[id]) {
+                System.arraycopy(word, woff, words, wordStart[id], wlen);
+                wordLength[id] = wlen;
+            }
+            return id;
+        }
+
+        if (used + wlen > words.length) words = Arrays.copyOf(words, Math.max(words.length * 2, used + wlen));
+        if (id == wordStart.length) {
+            wordStart = Arrays.copyOf(wordStart, id * 2);
+            wordLength = Arrays.copyOf(wordLength, id * 2);
+        }
+        System.arraycopy(word, woff, words, used, wlen);
+        wordStart[id] = used;
+        wordLength[id] = wlen;
+        used += wlen;
+        return id;
+    }
+
+    public int add(String stem, String word) {
+        return add(stem.toCharArray(), 0, stem.length(), word.toCharArray(), 0, word.length());
+    }
+
+    /**
+     * Adds stem id of other with its word.
+     * @param other
+     * @param id
+     * @return the id of the stem in this dictionary
+     */
+    public int add(TermDictionary other, int id) {
+        WordTable s = other.stems;
+        return add(s.chars(), s.start(id), s.length(id), other.words, other.wordStart[id], other.wordLength[id]);
+    }
+
+    /** Returns the id of a stem, or -1 if it has not been seen. */
+    public int find(char[] stem, int off, int len) { return stems.find(stem, off, len); }
+
+    /**
+     * Adds every stem of other, in other's id order.
+     * @param other
+     * @return the id in this dictionary of each of other's ids
+     */
+    public int[] merge(TermDictionary other) {
+        int[] map = new int[other.size()];
+        for (int id = 0; id < map.length; id++) map[id] = add(other, id);
+        return map;
+    }
+
+    /** Returns the number of distinct stems. */
+    public int size() { return stems.size(); }
+
+    /** Returns the stem with the given id. */
+    public String term(int id) { return stems.word(id); }
+
+    /** Returns a hash of the stem with the given id, the same in every dictionary. */
+    public int hash(int id) { return stems.hash(id); }
+
+    /** Returns the shortest word seen for the stem with the given id. */
+    public String word(int id) { return new String(words, wordStart[id], wordLength[id]); }
+}
@@ -0,0 +1,13 @@
+/**
+ * Receives tokens as they are streamed out of the corpus.
+ *
+ * The characters are only valid for the duration of the call; the buffer
+ * is reused for the next token, so copy out anything that has to be kept.
+ */
+interface TokenSink
+{
+    void token(char[] buf, int off, int len);
+
+    /** Called at every ";" paragraph delimiter. */
+    void endParagraph();
+}
@@ -0,0 +1,120 @@
+/**
+ * Single pass tokenizer over decoded corpus text.
+ *
+ * Every char is looked up once in a precomputed class table that folds
+ * steps A to D together: letters are lower-cased into the token buffer,
+ * digits and punctuation are dropped, anything else ends the token, and
+ * ";" ends the paragraph. Tokens are handed to the sink straight out of
+ * the reused token buffer, so nothing is allocated per token.
+ */
+class Tokenizer
+{
+    private static final byte DELIM = 0,     /* ends the current token */
+            LETTER = 1,              /* kept, lower-cased */
+            DROP = 2,                /* removed without ending the token */
+            JOIN = 3,                /* kept inside a word, e.g. self-driving */
+            PARAGRAPH = 4;           /* ";" paragraph delimiter */
+
+    private static final byte[] CLASS = new byte[Character.MAX_VALUE + 1];
+    private static final char[] LOWER = new char[Character.MAX_VALUE + 1];
+
+    static {
+        // with the mojibake characters the old regex removed, whatever Character says of them
+        String punctuation = "?,\".{}!@#$%^&*()|:'`~\u00e2\u20ac\u201c\u2013<>[]";
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            char ch = (char) c;
+            LOWER[c] = Character.toLowerCase(ch);
+            if (punctuation.indexOf(ch) >= 0) CLASS[c] = DROP;
+            else if (ch < 128) {
+                if ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z')) CLASS[c] = LETTER;
+                else if (ch >= '0' && ch <= '9') CLASS[c] = DROP;
+                else if (ch == '-' || ch == '/') CLASS[c] = JOIN;
+                else if (ch == ';') CLASS[c] = PARAGRAPH;
+                else CLASS[c] = DELIM;
+            }
+            else if (Character.isLetter(ch)) CLASS[c] = LETTER;
+            else if (Character.isDigit(ch)) CLASS[c] = DROP;
+            else switch (Character.getType(ch)) {
+                case Character.DASH_PUNCTUATION:
+                case Character.START_PUNCTUATION:
+                case Character.END_PUNCTUATION:
+                case Character.CONNECTOR_PUNCTUATION:
+                case Character.INITIAL_QUOTE_PUNCTUATION:
+                case Character.FINAL_QUOTE_PUNCTUATION:
+                case Character.OTHER_PUNCTUATION:
+                case Character.CURRENCY_SYMBOL:
+                case Character.MATH_SYMBOL:
+                case Character.MODIFIER_SYMBOL:
+                case Character.OTHER_SYMBOL:
+                    CLASS[c] = DROP;
+                    break;
+                default:
+                    CLASS[c] = DELIM;
+            }
+        }
+    }
+
+    private final TokenSink sink;
+    private char[] tok = new char[64];
+    private int tokLen;
+    private boolean open;   /* tokens seen since the last paragraph delimiter */
+
+    public Tokenizer(TokenSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Tokenizes len chars of a starting at off. A token cut by the end of
+     * the chunk is carried over to the next call.
+     */
+    public void feed(char[] a, int off, int len) {
+        for (int c = off, end = off + len; c < end; c++) {
+            char ch = a[c];
+            switch (CLASS[ch]) {
+                case LETTER:
+                    append(LOWER[ch]);
+                    break;
+                case DROP:
+                    break;
+                case JOIN:
+                    if (tokLen > 0) append(ch);
+                    break;
+                case PARAGRAPH:
+                    emit();
+                    endParagraph();
+                    break;
+                default:
+                    emit();
+            }
+        }
+    }
+
+    /** Flushes the last token, closing the last paragraph if it had no ";". */
+    public void finish() {
+        emit();
+        if (open) endParagraph();
+    }
+
+    private void append(char ch) {
+        if (tokLen == tok.length) {
+            char[] grown = new char[tokLen * 2];
+            System.arraycopy(tok, 0, grown, 0, tokLen);
+            tok = grown;
+        }
+        tok[tokLen++] = ch;
+    }
+
+    private void emit() {
+        while (tokLen > 0 && CLASS[tok[tokLen - 1]] == JOIN) tokLen--;
+        if (tokLen > 0) {
+            sink.token(tok, 0, tokLen);
+            open = true;
+        }
+        tokLen = 0;
+    }
+
+    private void endParagraph() {
+        sink.endParagraph();
+        open = false;
+    }
+}
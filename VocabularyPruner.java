@@ -0,0 +1,136 @@
+import java.util.Arrays;
+
+/**
+ * Step H, extract the most frequent words: picks the terms worth keeping
+ * as columns of the term document matrix.
+ *
+ * A term is eligible if it occurs in at least minDf paragraphs and in at
+ * most the fraction maxDf of them, which drops rare words and words so
+ * common they say nothing about a paragraph. Of the eligible terms the
+ * top K are kept, ranked by corpus frequency (total occurrences) or by
+ * document frequency, ties going to the term seen first. Selection runs
+ * a bounded min-heap of K term ids over the vocabulary, O(V log K), the
+ * least frequent kept term at the root ready to be pushed out.
+ *
+ * Frequencies are counted as documents come out of the counting pass;
+ * select() then gives the new id of every term, so documents can be
+ * renumbered before any matrix row is built. Kept terms keep their
+ * relative order.
+ */
+class VocabularyPruner
+{
+    /** rank by total occurrences */
+    static final int CORPUS = 0;
+    /** rank by paragraphs containing the term */
+    static final int DOCUMENT = 1;
+
+    private final int topK;
+    private final int rank;
+    private final int minDf;
+    private final double maxDf;
+    private int[] cf = new int[256];
+    private int[] df = new int[256];
+    private int terms;
+    private int documents;
+
+    /**
+     * @param topK terms to keep, 0 for all that are eligible
+     * @param rank CORPUS or DOCUMENT frequency
+     * @param minDf fewest paragraphs a term must occur in
+     * @param maxDf largest fraction of paragraphs a term may occur in
+     */
+    public VocabularyPruner(int topK, int rank, int minDf, double maxDf) {
+        if (topK < 0) throw new IllegalArgumentException("top K must not be negative: " + topK);
+        if (rank != CORPUS && rank != DOCUMENT) throw new IllegalArgumentException("unknown ranking: " + rank);
+        if (minDf < 1) throw new IllegalArgumentException("min df must be positive: " + minDf);
+        if (!(maxDf > 0 && maxDf <= 1)) throw new IllegalArgumentException("max df must be in (0, 1]: " + maxDf);
+        this.topK = topK;
+        this.rank = rank;
+        this.minDf = minDf;
+        this.maxDf = maxDf;
+    }
+
+    /** Returns whether every term is kept whatever the counts. */
+    public boolean keepsAll() { return topK == 0 && minDf == 1 && maxDf == 1; }
+
+    /** Counts the terms of a document. */
+    public void count(Document doc) {
+        documents++;
+        for (int t = 0; t < doc.size(); t++) {
+            int term = doc.terms[t];
+            if (term >= cf.length) {
+                int size = Math.max(term + 1, cf.length * 2);
+                cf = Arrays.copyOf(cf, size);
+                df = Arrays.copyOf(df, size);
+            }
+            cf[term] += doc.counts[t];
+            df[term]++;
+            terms = Math.max(terms, term + 1);
+        }
+    }
+
+    /**
+     * Chooses the terms to keep.
+     * @param vocabulary number of term ids, e.g. the dictionary size
+     * @return the new id of every old id, -1 for a dropped term
+     */
+    public int[] select(int vocabulary) {
+        int k = topK > 0 ? topK : vocabulary;
+        int[] heap = new int[Math.min(k, vocabulary)];
+        int size = 0;
+        for (int term = 0; term < vocabulary; term++) {
+            int n = df(term);
+            if (n < minDf || n > maxDf * documents) continue;
+            if (size < heap.length) {
+                heap[size] = term;
+                up(heap, size++);
+            } else if (size > 0 && before(term, heap[0])) {
+                heap[0] = term;
+                down(heap, size);
+            }
+        }
+        int[] map = new int[vocabulary];
+        Arrays.fill(map, -1);
+        for (int i = 0; i < size; i++) map[heap[i]] = 0;
+        int next = 0;
+        for (int term = 0; term < vocabulary; term++) if (map[term] == 0) map[term] = next++;
+        return map;
+    }
+
+    private int df(int term) { return term < terms ? df[term] : 0; }
+
+    private int frequency(int term) {
+        if (term >= terms) return 0;
+        return rank == CORPUS ? cf[term] : df[term];
+    }
+
+    /* whether term a ranks above term b: more frequent, or as frequent and seen first */
+    private boolean before(int a, int b) {
+        int fa = frequency(a), fb = frequency(b);
+        return fa != fb ? fa > fb : a < b;
+    }
+
+    /* min-heap on rank: the root is the term that would be dropped first */
+    private void up(int[] heap, int i) {
+        int term = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(heap[parent], term)) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = term;
+    }
+
+    private void down(int[] heap, int size) {
+        int term = heap[0];
+        int i = 0;
+        for (int child = 1; child < size; child = 2 * i + 1) {
+            if (child + 1 < size && before(heap[child], heap[child + 1])) child++;
+            if (!before(term, heap[child])) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = term;
+    }
+}
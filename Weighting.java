@@ -0,0 +1,156 @@
+import java.util.Arrays;
+
+/**
+ * Turns the term counts of the feature vectors into weights.
+ *
+ *   raw    tf, the count itself (the default, as in TDM.csv so far)
+ *   log    1 + ln tf, so that repeating a word adds less and less
+ *   tfidf  (1 + ln tf) * ln(N / df), which also discounts words found in
+ *          many paragraphs and zeroes those found in all of them
+ *   bm25   idf * tf * (k1 + 1) / (tf + k1 * (1 - b + b * dl / avgdl)),
+ *          idf = ln(1 + (N - df + 0.5) / (df + 0.5)), k1 = 1.2, b = 0.75
+ *
+ * where N is the number of paragraphs, df the number that contain the
+ * term and dl the number of words in the paragraph. Optionally every
+ * vector is then scaled to unit (L2) length.
+ *
+ * The document frequencies are counted as the documents come out of the
+ * counting pass (count()), so weighting the matrix afterwards (apply())
+ * needs no second read of the corpus.
+ */
+class Weighting
+{
+    static final int RAW = 0;
+    static final int LOG = 1;
+    static final int TFIDF = 2;
+    static final int BM25 = 3;
+    private static final String[] NAMES = {"raw", "log", "tfidf", "bm25"};
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+
+    private final int scheme;
+    private final boolean normalize;
+    private int[] df = new int[256];
+    private int documents;
+    private long words;
+
+    /**
+     * @param scheme RAW, LOG, TFIDF or BM25
+     * @param normalize scale every vector to unit length
+     */
+    public Weighting(int scheme, boolean normalize) {
+        if (scheme < RAW || scheme > BM25) throw new IllegalArgumentException("unknown weighting: " + scheme);
+        this.scheme = scheme;
+        this.normalize = normalize;
+    }
+
+    /**
+     * Looks up a scheme by name.
+     * @param name raw, log, tfidf or bm25
+     * @return the scheme
+     * @throws IllegalArgumentException for any other name
+     */
+    public static int scheme(String name) {
+        for (int s = 0; s < NAMES.length; s++) if (NAMES[s].equals(name)) return s;
+        throw new IllegalArgumentException("unknown weighting: " + name);
+    }
+
+    /** Returns the name of the scheme, e.g. "tfidf". */
+    public String name() { return NAMES[scheme]; }
+
+    /** Returns whether it leaves the counts as they are. */
+    public boolean isRaw() { return scheme == RAW && !normalize; }
+
+    /** Counts the terms of a document towards the document frequencies. */
+    public void count(Document doc) {
+        documents++;
+        for (int t = 0; t < doc.size(); t++) {
+            int term = doc.terms[t];
+            if (term >= df.length) df = Arrays.copyOf(df, Math.max(term + 1, df.length * 2));
+            df[term]++;
+            words += doc.counts[t];
+        }
+    }
+
+    /** Returns the number of documents counted. */
+    public int documents() { return documents; }
+
+    /** Returns the number of counted documents that contain a term. */
+    public int df(int term) { return term < df.length ? df[term] : 0; }
+
+    /**
+     * Returns the weight of a term.
+     * @param tf occurrences in the document
+     * @param term
+     * @param length words in the document
+     */
+    public double weight(double tf, int term, double length) {
+        return weight(scheme, tf, df(term), documents, length, documents > 0 ? (double) words / documents : 1);
+    }
+
+    /**
+     * Returns the weight of a term under a scheme, given the statistics
+     * of some collection, e.g. an InvertedIndex.
+     * @param scheme RAW, LOG, TFIDF or BM25
+     * @param tf occurrences in the document
+     * @param df documents that contain the term
+     * @param documents in the collection
+     * @param length words in the document
+     * @param average words in a document of the collection
+     */
+    public static double weight(int scheme, double tf, double df, int documents, double length, double average) {
+        if (tf == 0) return 0;
+        switch (scheme) {
+            case LOG: return 1 + Math.log(tf);
+            case TFIDF: return (1 + Math.log(tf)) * Math.log((double) documents / Math.max(df, 1));
+            case BM25:
+                double idf = Math.log(1 + (documents - df + 0.5) / (df + 0.5));
+                return idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / average));
+            default: return tf;
+        }
+    }
+
+    /**
+     * Replaces the counts in the matrix by weights, in place, using the
+     * document frequencies counted so far.
+     * @param tdm rows of term counts
+     */
+    public void apply(SparseMatrix tdm) {
+        if (isRaw()) return;
+        for (int r = 0; r < tdm.rows(); r++) {
+            double length = 0;
+            for (int i = tdm.rowStart(r); i < tdm.rowEnd(r); i++) length += tdm.value(i);
+            double sum = 0;
+            for (int i = tdm.rowStart(r); i < tdm.rowEnd(r); i++) {
+                double w = weight(tdm.value(i), tdm.col(i), length);
+                tdm.setValue(i, (float) w);
+                sum += w * w;
+            }
+            if (normalize && sum > 0) {
+                double scale = 1 / Math.sqrt(sum);
+                for (int i = tdm.rowStart(r); i < tdm.rowEnd(r); i++) tdm.setValue(i, (float) (tdm.value(i) * scale));
+            }
+        }
+    }
+
+    /**
+     * Returns the weights of a document's terms, in its term order.
+     * @param doc
+     * @return one weight per term, unit length if normalizing
+     */
+    public double[] weigh(Document doc) {
+        double length = 0;
+        for (int t = 0; t < doc.size(); t++) length += doc.counts[t];
+        double[] w = new double[doc.size()];
+        double sum = 0;
+        for (int t = 0; t < w.length; t++) {
+            w[t] = weight(doc.counts[t], doc.terms[t], length);
+            sum += w[t] * w[t];
+        }
+        if (normalize && sum > 0) {
+            double scale = 1 / Math.sqrt(sum);
+            for (int t = 0; t < w.length; t++) w[t] *= scale;
+        }
+        return w;
+    }
+}
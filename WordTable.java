@@ -0,0 +1,100 @@
+import java.util.Arrays;
+
+/**
+ * Set of words numbered from 0 in the order they were added, the common
+ * core of StopWordFilter and TermDictionary.
+ *
+ * The words are packed back to back into one char array and indexed by an
+ * open addressing hash table, so a word costs its characters plus a few
+ * ints, and a lookup hashes the caller's chars in place: nothing is copied
+ * into a String to be found.
+ */
+class WordTable
+{
+    private char[] chars = new char[512];   /* all words, back to back */
+    private int used;
+    private int[] start = new int[64];
+    private int[] length = new int[64];
+    private int size;
+    private int[] table = new int[128];     /* id + 1, 0 = empty slot */
+
+    /**
+     * Returns the id of a word, adding it if it is new; a new word gets
+     * the id size() had before.
+     * @param buf buffer holding the word
+     * @param off
+     * @param len
+     */
+    public int add(char[] buf, int off, int len) {
+        int mask = table.length - 1;
+        int slot = hash(buf, off, len) & mask;
+        for (; ; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) break;
+            if (length[id] == len && matches(id, buf, off)) return id;
+        }
+
+        if (used + len > chars.length) chars = Arrays.copyOf(chars, Math.max(chars.length * 2, used + len));
+        if (size == start.length) {
+            start = Arrays.copyOf(start, size * 2);
+            length = Arrays.copyOf(length, size * 2);
+        }
+        System.arraycopy(buf, off, chars, used, len);
+        start[size] = used;
+        length[size] = len;
+        used += len;
+        int id = size++;
+        table[slot] = id + 1;
+        // keep the table at most half full so probe chains stay short
+        if (size * 2 > table.length) rehash(table.length * 2);
+        return id;
+    }
+
+    /** Returns the id of a word, or -1 if it is not in the table. */
+    public int find(char[] buf, int off, int len) {
+        int mask = table.length - 1;
+        for (int slot = hash(buf, off, len) & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) return -1;
+            if (length[id] == len && matches(id, buf, off)) return id;
+        }
+    }
+
+    /** Returns the number of words. */
+    public int size() { return size; }
+
+    /** Returns the word with the given id. */
+    public String word(int id) { return new String(chars, start[id], length[id]); }
+
+    /** Returns the array holding every word; word id starts at start(id). */
+    char[] chars() { return chars; }
+
+    int start(int id) { return start[id]; }
+
+    int length(int id) { return length[id]; }
+
+    /** Returns the hash of the word with the given id, which depends on its chars alone. */
+    public int hash(int id) { return hash(chars, start[id], length[id]); }
+
+    private boolean matches(int id, char[] buf, int off) {
+        int s = start[id];
+        for (int c = 0; c < length[id]; c++) if (chars[s + c] != buf[off + c]) return false;
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hash(chars, start[id], length[id]) & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = id + 1;
+        }
+    }
+
+    private static int hash(char[] buf, int off, int len) {
+        int h = 0;
+        for (int c = off, end = off + len; c < end; c++) h = 31 * h + buf[c];
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,135 @@
+package textmining;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Synthetic input for the benchmarks, the same for every run of a seed.
+ *
+ * Words are made of random syllables plus common English suffixes, so
+ * that the stemmer has real work to do, and are drawn with Zipf
+ * frequencies like natural text. Paragraphs mix in stop words, capitals,
+ * digits and punctuation, and end with ";" as in paragraphs.txt.
+ */
+final class Corpora
+{
+    private static final String[] SYLLABLES = {
+        "ab", "al", "an", "ar", "ba", "be", "ca", "co", "de", "di", "el", "en", "fa", "ge", "ha", "in",
+        "ka", "la", "li", "ma", "mo", "na", "ne", "or", "pa", "pe", "ra", "re", "sa", "si", "ta", "te",
+        "to", "ul", "un", "va", "ve", "wa", "ya", "ze"
+    };
+    private static final String[] SUFFIXES = {
+        "", "", "", "s", "es", "ed", "ing", "ly", "ness", "ment", "ation", "ational", "ive", "ful",
+        "ousness", "ize", "izer", "ical", "ence", "able", "ism", "iveness", "al", "ent"
+    };
+    private static final String[] STOP = {"the", "a", "of", "and", "to", "in", "is", "that", "it", "for"};
+    private static final char[] PUNCTUATION = {',', '.', '!', '?', ':', '"', '(', ')'};
+
+    private final String[] vocabulary;
+    private final double[] cdf;
+    private final Random random;
+
+    /**
+     * @param vocabulary distinct words
+     * @param seed
+     */
+    Corpora(int vocabulary, long seed) {
+        this.random = new Random(seed);
+        this.vocabulary = new String[vocabulary];
+        for (int w = 0; w < vocabulary; w++) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 1 + random.nextInt(3);
+            for (int s = 0; s < syllables; s++) word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            word.append(SUFFIXES[random.nextInt(SUFFIXES.length)]);
+            this.vocabulary[w] = word.toString();
+        }
+        // Zipf: the w-th most common word is 1 / (w + 1) as likely as the first
+        this.cdf = new double[vocabulary];
+        double sum = 0;
+        for (int w = 0; w < vocabulary; w++) cdf[w] = sum += 1.0 / (w + 1);
+        for (int w = 0; w < vocabulary; w++) cdf[w] /= sum;
+    }
+
+    /** Returns a word drawn with Zipf frequency, lower case. */
+    String word() {
+        int w = Arrays.binarySearch(cdf, random.nextDouble());
+        return vocabulary[Math.min(w < 0 ? -w - 1 : w, vocabulary.length - 1)];
+    }
+
+    /** Returns words drawn with Zipf frequency. */
+    String[] words(int n) {
+        String[] words = new String[n];
+        for (int i = 0; i < n; i++) words[i] = word();
+        return words;
+    }
+
+    /** Appends a paragraph of about the given number of words, ending in ";". */
+    void paragraph(StringBuilder out, int words) {
+        for (int i = 0; i < words; i++) {
+            if (i > 0) out.append(' ');
+            int kind = random.nextInt(20);
+            if (kind < 5) {
+                out.append(STOP[random.nextInt(STOP.length)]);
+            } else if (kind == 5) {
+                out.append(1900 + random.nextInt(200));
+            } else {
+                String word = word();
+                if (kind == 6) out.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+                else out.append(word);
+                if (kind == 7) out.append(PUNCTUATION[random.nextInt(PUNCTUATION.length)]);
+            }
+        }
+        out.append(";\n");
+    }
+
+    /** Returns paragraphs of the given number of words as one String. */
+    String text(int paragraphs, int words) {
+        StringBuilder out = new StringBuilder();
+        for (int p = 0; p < paragraphs; p++) paragraph(out, words);
+        return out.toString();
+    }
+
+    /**
+     * Writes a corpus file to the temporary directory.
+     * @param paragraphs
+     * @param words per paragraph
+     * @return the file, to be deleted by the caller
+     */
+    Path file(int paragraphs, int words) throws IOException {
+        Path file = Files.createTempFile("textmining-corpus-" + paragraphs + "-", ".txt");
+        StringBuilder out = new StringBuilder();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int p = 0; p < paragraphs; p++) {
+                paragraph(out, words);
+                if (out.length() > 1 << 16) {
+                    writer.append(out);
+                    out.setLength(0);
+                }
+            }
+            writer.append(out);
+        }
+        return file;
+    }
+
+    /** Returns the project's stop words, packaged with the benchmarks. */
+    static StopWordFilter stopWords() throws IOException {
+        StopWordFilter filter = new StopWordFilter();
+        try (InputStream in = Corpora.class.getResourceAsStream("/stop_words.txt")) {
+            if (in == null) throw new IOException("stop_words.txt is not on the class path");
+            BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) filter.add(line);
+            }
+        }
+        return filter;
+    }
+}
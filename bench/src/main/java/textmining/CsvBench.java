@@ -0,0 +1,60 @@
+package textmining;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing TDM.csv (what writeCSV used to do): the keyword set and every
+ * row of a 1000 paragraph matrix through CsvMatrixWriter, plain and
+ * gzipped. Scores are milliseconds per file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class CsvBench
+{
+    @Param({"false", "true"})
+    boolean gzip;
+
+    TermDictionary dictionary;
+    SparseMatrix tdm;
+    Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        Path corpus = new Corpora(20_000, 42).file(1000, 60);
+        dictionary = new TermDictionary();
+        tdm = Stemmer.prepFeatures(corpus.toString(), Corpora.stopWords(), new StemCache(StemCache.DEFAULT_CAPACITY),
+                1, dictionary);
+        Files.delete(corpus);
+        file = Files.createTempFile("textmining-tdm-", gzip ? ".csv.gz" : ".csv");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void writeCSV() throws IOException {
+        Stemmer.paragraphs(file.toString(), gzip, dictionary, tdm, new Progress(Progress.QUIET, System.err));
+    }
+}
@@ -0,0 +1,75 @@
+package textmining;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Step G and the feature vectors at growing paragraph sizes:
+ * combineStemmed over one paragraph of the given number of words, and
+ * featureVector over one row of a matrix whose vocabulary grows with it.
+ * combineStemmed consumes its lists, so each call first copies them; the
+ * copy is part of the score.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FeatureBench
+{
+    @Param({"10", "100", "1000", "10000"})
+    int words;
+
+    ArrayList<String> paragraph;
+    ArrayList<String> stemmed;
+    SparseMatrix tdm;
+
+    @Setup
+    public void setup() {
+        paragraph = new ArrayList<String>();
+        stemmed = new ArrayList<String>();
+        Stemmer stemmer = new Stemmer();
+        for (String w : new Corpora(words * 2, 42).words(words)) {
+            paragraph.add(w);
+            stemmer.stem(w);
+            stemmed.add(stemmer.toString());
+        }
+        // a matrix with one row per 10 words, so the vocabulary grows with the paragraph
+        TermDictionary dictionary = new TermDictionary();
+        TermCounter counter = new TermCounter();
+        tdm = new SparseMatrix();
+        Corpora corpora = new Corpora(words * 2, 7);
+        for (int r = 0; r < Math.max(1, words / 10); r++) {
+            counter.clear();
+            for (String w : corpora.words(words)) {
+                stemmer.stem(w);
+                counter.add(dictionary.add(stemmer.toString(), w));
+            }
+            tdm.appendRow(Document.of(counter));
+        }
+        tdm.setColumns(dictionary.size());
+    }
+
+    @Benchmark
+    public ArrayList<String> combineStemmed() {
+        return Stemmer.combineStemmed(new ArrayList<String>(paragraph), new ArrayList<String>(stemmed), 0);
+    }
+
+    @Benchmark
+    public ArrayList<String> featureVector() {
+        return Stemmer.featureVector(tdm, 0, "Paragraph 1");
+    }
+}
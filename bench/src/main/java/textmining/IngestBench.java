@@ -0,0 +1,62 @@
+package textmining;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End to end steps A to G: reading, tokenizing, filtering, stemming and
+ * counting a synthetic corpus of 10^3 to 10^6 paragraphs of 60 words into
+ * the term document matrix, on one thread and on every core. Each
+ * measurement is one whole run; the corpus file is written once per
+ * trial and is about 400 bytes a paragraph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IngestBench
+{
+    @Param({"1000", "10000", "100000", "1000000"})
+    int paragraphs;
+
+    @Param({"1", "0"})
+    int threads;    /* 0 for one per core */
+
+    Path corpus;
+    StopWordFilter stopWords;
+
+    @Setup
+    public void setup() throws IOException {
+        corpus = new Corpora(50_000, 42).file(paragraphs, 60);
+        stopWords = Corpora.stopWords();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(corpus);
+    }
+
+    @Benchmark
+    public SparseMatrix ingest() throws IOException {
+        int n = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return Stemmer.prepFeatures(corpus.toString(), stopWords, new StemCache(StemCache.DEFAULT_CAPACITY), n,
+                new TermDictionary());
+    }
+}
@@ -0,0 +1,79 @@
+package textmining;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ranked queries of two to four words against the inverted index of a
+ * synthetic corpus of 10^4 to 10^6 paragraphs, sampled one query at a
+ * time so that JMH reports the latency percentiles (p99 and up). The
+ * index is built and mapped once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBench
+{
+    static final int QUERIES = 1024;
+
+    @Param({"10000", "100000", "1000000"})
+    int paragraphs;
+
+    @Param({"bm25", "tfidf"})
+    String score;
+
+    @Param({"10"})
+    int hits;
+
+    Path corpus, segment;
+    Searcher searcher;
+    String[] queries;
+    int next;
+
+    @Setup
+    public void setup() throws IOException {
+        Corpora corpora = new Corpora(50_000, 42);
+        corpus = corpora.file(paragraphs, 60);
+        segment = Files.createTempFile("textmining-index-", ".seg");
+        StopWordFilter stopWords = Corpora.stopWords();
+        StemCache cache = new StemCache(StemCache.DEFAULT_CAPACITY);
+        TermDictionary dictionary = new TermDictionary();
+        IndexBuilder index = new IndexBuilder();
+        Stemmer.prepFeatures(corpus.toString(), stopWords, cache, Runtime.getRuntime().availableProcessors(),
+                dictionary, new Weighting(Weighting.RAW, false), new VocabularyPruner(0, VocabularyPruner.CORPUS, 1, 1),
+                null, index);
+        index.write(segment.toString(), dictionary);
+        searcher = new Searcher(InvertedIndex.load(segment.toString()), stopWords, cache, Weighting.scheme(score));
+        queries = new String[QUERIES];
+        for (int q = 0; q < QUERIES; q++) queries[q] = String.join(" ", corpora.words(2 + q % 3));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(corpus);
+        Files.deleteIfExists(segment);
+    }
+
+    @Benchmark
+    public Searcher.Hits search() {
+        return searcher.search(queries[next++ & (QUERIES - 1)], hits);
+    }
+}
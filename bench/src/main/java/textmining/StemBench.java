@@ -0,0 +1,65 @@
+package textmining;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Step F: Porter stemming throughput in words per second over a fixed
+ * Zipf distributed vocabulary, straight through the Stemmer and through
+ * the shared StemCache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class StemBench
+{
+    static final int WORDS = 10_000;
+
+    @Param({"1000", "20000"})
+    int vocabulary;
+
+    char[][] words;
+    char[] out = new char[64];
+    Stemmer stemmer;
+    StemCache cache;
+
+    @Setup
+    public void setup() {
+        String[] w = new Corpora(vocabulary, 42).words(WORDS);
+        words = new char[WORDS][];
+        for (int i = 0; i < WORDS; i++) words[i] = w[i].toCharArray();
+        stemmer = new Stemmer();
+        cache = new StemCache(StemCache.DEFAULT_CAPACITY);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public int stem() {
+        int sum = 0;
+        for (char[] w : words) sum += stemmer.stem(w, 0, w.length, out, 0);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public int stemCached() {
+        int sum = 0;
+        for (char[] w : words) sum += cache.stem(w, 0, w.length, out, 0);
+        return sum;
+    }
+}
@@ -0,0 +1,65 @@
+package textmining;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Steps A to E: tokenizing 1000 synthetic paragraphs, alone and with the
+ * stop word filter. Scores are passes over the text per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TokenizeBench
+{
+    char[] text;
+    StopWordFilter stopWords;
+
+    @Setup
+    public void setup() throws IOException {
+        text = new Corpora(20_000, 42).text(1000, 60).toCharArray();
+        stopWords = Corpora.stopWords();
+    }
+
+    @Benchmark
+    public long tokenize() {
+        long[] n = new long[1];
+        Tokenizer tokenizer = new Tokenizer(new TokenSink() {
+            public void token(char[] buf, int off, int len) { n[0] += len; }
+
+            public void endParagraph() { n[0]++; }
+        });
+        tokenizer.feed(text, 0, text.length);
+        tokenizer.finish();
+        return n[0];
+    }
+
+    @Benchmark
+    public long tokenizeAndFilter() {
+        long[] n = new long[1];
+        Tokenizer tokenizer = new Tokenizer(new TokenSink() {
+            public void token(char[] buf, int off, int len) {
+                if (!stopWords.contains(buf, off, len)) n[0] += len;
+            }
+
+            public void endParagraph() { n[0]++; }
+        });
+        tokenizer.feed(text, 0, text.length);
+        tokenizer.finish();
+        return n[0];
+    }
+}
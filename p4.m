@@ -3,35 +3,25 @@ T = readtable('TDM.csv', 'Format', 'auto');
 
 %initialization
 
-n = 16; %number of neurons
+X = T{:, 2:end-1}; %drop the row labels and the empty column left by the trailing ", "
+[p, d] = size(X); %paragraphs, keywords
 
-X = T{1:16, 2:695};
-W = rand(694, n);
+n = p; %number of neurons
 
-Z = zeros(16, 694);
-V = zeros(694, n);
+W = rand(d, n);
 
 alpha = 0.1;
 
-%normalization
+%normalization, each norm computed once
 
-for i = 1:size(W,2)
-    for j = 1:size(W,1)
-        V(j, i) = W(j, i)/norm(W(:, i));
-    end
-end
-
-for i = 1:size(X,1)
-    for j = 1:size(X,2)
-        Z(i, j) = X(i, j)/norm(X(i, :));
-    end
-end
+V = W ./ vecnorm(W);       %unit length neurons (columns)
+Z = X ./ vecnorm(X, 2, 2); %unit length paragraphs (rows)
 
 for k = 1:1000
     
     NET = Z*V;
-    M = zeros(16, 1);
-    I = zeros(16, 1);
+    M = zeros(p, 1);
+    I = zeros(p, 1);
     
     for i  = 1:size(NET, 1)
         [M(i, 1),I(i, 1)] = max(NET(i, :));
@@ -44,8 +34,8 @@ for k = 1:1000
 end
 
 NET = Z*V;
-M = zeros(16, 1);
-I = zeros(16, 1);
+M = zeros(p, 1);
+I = zeros(p, 1);
 
 for i  = 1:size(NET, 1)
     [M(i, 1),I(i, 1)] = max(NET(i, :));